@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseSettings;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+    public EmbeddedDataBaseConfig(String databaseName) {
+        super(DataBaseSettings.embedded(databaseName));
+    }
+
+    public void resetSchema() throws Exception {
+        try (Connection con = getConnection();
+             Statement statement = con.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        new SchemaMigrator(this).migrate();
+    }
+}
@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FareCalculatorBenchmark {
+
+    @State(Scope.Thread)
+    public static class TicketState {
+        @Param({"CAR", "BIKE"})
+        private ParkingType parkingType;
+
+        @Param({"false", "true"})
+        private boolean discount;
+
+        private Ticket ticket;
+
+        @Setup
+        public void setUp() {
+            long outTime = System.currentTimeMillis();
+            ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+            ticket.setInTime(new Date(outTime - (95 * 60 * 1000) - 1234));
+            ticket.setOutTime(new Date(outTime));
+        }
+    }
+
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private double price = 1.42526688;
+
+    @Benchmark
+    public double calculateFare(TicketState state) {
+        fareCalculatorService.calculateFare(state.ticket, state.discount);
+        return state.ticket.getPrice();
+    }
+
+    @Benchmark
+    public double roundPrice() {
+        return fareCalculatorService.roundPrice(price);
+    }
+}
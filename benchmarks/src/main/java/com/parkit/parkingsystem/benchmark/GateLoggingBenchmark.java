@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of headless entries and exits on the embedded database with every request and
+ * connection message logged synchronously, as before, against the shipped configuration:
+ * sampled gate events behind an asynchronous appender. Both write to a file in the
+ * temporary directory. Each logging mode runs in its own forked JVM.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class GateLoggingBenchmark {
+
+    @Param({"sync", "async"})
+    private String logging;
+
+    private static final int PLATES_PER_THREAD = 1000;
+
+    private ParkingService parkingService;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Gate {
+        private int gateNumber = -1;
+        private int plate;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Read when the gate event log is first used, below
+        System.setProperty("parkit.log.sample.rate", "sync".equals(logging) ? "1" : "100");
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        context.setConfigLocation(GateLoggingBenchmark.class.getResource("/log4j2-" + logging + ".properties").toURI());
+
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("gateLoggingBenchmark");
+        dataBaseConfig.resetSchema();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?, true, 'CAR')")) {
+            for (int parkingNumber = 6; parkingNumber <= 100; parkingNumber++) {
+                ps.setInt(1, parkingNumber);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpotIndex();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingService = new ParkingService(parkingSpotDAO, ticketDAO, new FareCalculatorService());
+    }
+
+    @Benchmark
+    public ExitResult entryAndExit(Gate gate) {
+        if (gate.gateNumber < 0) {
+            gate.gateNumber = threadCount.getAndIncrement();
+        }
+        gate.plate = (gate.plate + 1) % PLATES_PER_THREAD;
+        String vehicleRegNumber = "G" + gate.gateNumber + "-" + gate.plate;
+        EntryResult entry = parkingService.enter(ParkingType.CAR, vehicleRegNumber);
+        if (!entry.isParked()) {
+            throw new IllegalStateException(entry.getMessage());
+        }
+        return parkingService.exit(vehicleRegNumber);
+    }
+}
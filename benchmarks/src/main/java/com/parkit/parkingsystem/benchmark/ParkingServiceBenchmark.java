@@ -0,0 +1,123 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * One vehicle entry followed by its exit, against mocked DAOs (service overhead only)
+ * or against DAOs backed by the embedded database, through the console adapter or the
+ * headless enter and exit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParkingServiceBenchmark {
+
+    @Param({"mock", "embedded"})
+    private String dao;
+
+    private static final int PLATES = 1000;
+
+    private ParkingService parkingService;
+    private InputReaderUtil inputReaderUtil;
+    private PrintStream console;
+    private int plate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+
+        inputReaderUtil = mock(InputReaderUtil.class);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        // Rotate plates so the ticket history of a single plate does not grow with the run
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenAnswer(invocation -> "P" + plate);
+
+        ParkingSpotDAO parkingSpotDAO;
+        TicketDAO ticketDAO;
+        if ("mock".equals(dao)) {
+            parkingSpotDAO = mock(ParkingSpotDAO.class);
+            ticketDAO = mock(TicketDAO.class);
+            ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+            when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+            when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.CAR)).thenReturn(parkingSpot);
+            when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+            when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+            // A fresh open ticket on every lookup, the exit closes the one it gets
+            when(ticketDAO.getTicket(anyString())).thenAnswer(invocation -> {
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+                ticket.setVehicleRegNumber(invocation.getArgument(0));
+                ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+                return ticket;
+            });
+            when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(1);
+            when(ticketDAO.getNbTicket(anyString())).thenReturn(2);
+        } else {
+            EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("parkingServiceBenchmark");
+            dataBaseConfig.resetSchema();
+            parkingSpotDAO = new ParkingSpotDAO();
+            parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+            parkingSpotDAO.reconcileFreeSpotIndex();
+            ticketDAO = new TicketDAO();
+            ticketDAO.dataBaseConfig = dataBaseConfig;
+        }
+        parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void entryAndExit() {
+        plate = (plate + 1) % PLATES;
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+    }
+
+    @Benchmark
+    public ExitResult headlessEntryAndExit() {
+        plate = (plate + 1) % PLATES;
+        String vehicleRegNumber = "P" + plate;
+        parkingService.enter(ParkingType.CAR, vehicleRegNumber);
+        return parkingService.exit(vehicleRegNumber);
+    }
+}
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.export.TicketColumnReader;
+import com.parkit.parkingsystem.export.TicketColumnWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan of a ticket export: revenue per vehicle type over one million tickets, read back from
+ * the columnar file without any database. Scores are in tickets per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TicketExportBenchmark {
+
+    private static final int TICKETS = 1000000;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("tickets", ".pktx");
+        long inTime = 1704067200000L;
+        try (TicketColumnWriter writer = new TicketColumnWriter(file)) {
+            for (int i = 0; i < TICKETS; i++) {
+                inTime += (i % 120) * 1000;
+                writer.write(i % 500 + 1, "AB-" + (i % 20000) + "-CD", i % 5 == 0 ? ParkingType.BIKE : ParkingType.CAR,
+                        inTime, inTime + (i % 360) * 60 * 1000, 150 * (i % 6));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKETS)
+    public long revenuePerType() throws IOException {
+        long[] revenue = new long[ParkingType.values().length];
+        try (TicketColumnReader reader = new TicketColumnReader(file)) {
+            TicketColumnReader.Batch batch = new TicketColumnReader.Batch();
+            while (reader.next(batch)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    revenue[batch.getParkingType(i).ordinal()] += batch.getPriceInCents(i);
+                }
+            }
+        }
+        return revenue[0] + revenue[1];
+    }
+}
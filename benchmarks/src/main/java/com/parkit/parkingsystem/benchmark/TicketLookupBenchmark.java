@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET_TICKET and GET_NB_TICKET latency as the ticket table grows, with and without the
+ * V2 lookup indexes. With the indexes the latency should stay flat across row counts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TicketLookupBenchmark {
+
+    private static final int PLATES = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private TicketDAO ticketDAO;
+    private int plate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("ticketLookupBenchmark");
+        dataBaseConfig.resetSchema();
+        try (Connection con = dataBaseConfig.getConnection()) {
+            if (!indexed) {
+                try (Statement statement = con.createStatement()) {
+                    statement.execute("drop index TICKET_VEHICLE_IN_TIME_IDX");
+                    statement.execute("drop index TICKET_OPEN_IDX");
+                }
+            }
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+                long start = System.currentTimeMillis() - rows * 60000L;
+                for (int i = 0; i < rows; i++) {
+                    long inTime = start + i * 60000L;
+                    ps.setInt(1, (i % 5) + 1);
+                    ps.setString(2, "P" + (i % PLATES));
+                    ps.setDouble(3, 1.5);
+                    ps.setTimestamp(4, new Timestamp(inTime));
+                    ps.setTimestamp(5, new Timestamp(inTime + 3600000));
+                    ps.addBatch();
+                    if (i % 10000 == 9999) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+            con.setAutoCommit(true);
+        }
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    private String nextPlate() {
+        plate = (plate + 1) % PLATES;
+        return "P" + plate;
+    }
+
+    @Benchmark
+    public Ticket getTicket() {
+        return ticketDAO.getTicket(nextPlate());
+    }
+
+    @Benchmark
+    public int getNbTicket() {
+        String vehicleRegNumber = nextPlate();
+        ticketDAO.getVisitCountCache().invalidate(vehicleRegNumber);
+        return ticketDAO.getNbTicket(vehicleRegNumber);
+    }
+}
@@ -1,13 +1,145 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.EventReplayService;
+import com.parkit.parkingsystem.service.GateHttpServer;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.ReportingService;
+import com.parkit.parkingsystem.service.TicketArchivalService;
+import com.parkit.parkingsystem.service.TicketExportService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String args[]){
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        try {
+            new SchemaMigrator(new DataBaseConfig()).migrate();
+        } catch (Exception e) {
+            logger.error("Unable to migrate the database schema", e);
+        }
+        if(args.length > 0 && "--http".equals(args[0])){
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : GateHttpServer.DEFAULT_PORT;
+            startHttpServer(port);
+        } else if(args.length > 1 && "--replay".equals(args[0])){
+            int chunkSize = args.length > 2 ? Integer.parseInt(args[2]) : EventReplayService.DEFAULT_CHUNK_SIZE;
+            replayEvents(Paths.get(args[1]), chunkSize);
+        } else if(args.length > 0 && "--archive".equals(args[0])){
+            int horizonDays = args.length > 1 ? Integer.parseInt(args[1]) : TicketArchivalService.DEFAULT_HORIZON_DAYS;
+            int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : TicketArchivalService.DEFAULT_BATCH_SIZE;
+            archiveTickets(horizonDays, batchSize);
+        } else if(args.length > 1 && "--export".equals(args[0])){
+            LocalDate firstDay = args.length > 2 ? LocalDate.parse(args[2]) : null;
+            LocalDate lastDay = args.length > 3 ? LocalDate.parse(args[3]) : null;
+            exportTickets(Paths.get(args[1]), firstDay, lastDay);
+        } else if(args.length > 2 && "--report".equals(args[0])){
+            printReport(LocalDate.parse(args[1]), LocalDate.parse(args[2]));
+        } else {
+            InteractiveShell.loadInterface();
+        }
+    }
+
+    private static void replayEvents(Path file, int chunkSize){
+        try {
+            EventReplayService.Report report = new EventReplayService(InteractiveShell.createParkingService(null), chunkSize)
+                    .replay(file);
+            System.out.println("Replayed " + report.getEvents() + " events in " + report.getElapsedNanos() / 1000000 + " ms ("
+                    + Math.round(report.getEventsPerSecond()) + " events/s)");
+            System.out.println(report.getEntries() + " entries, " + report.getExits() + " exits, "
+                    + report.getRejected() + " rejected");
+            for (String rejection : report.getRejections()) {
+                System.out.println("Rejected " + rejection);
+            }
+        } catch (Exception e) {
+            logger.error("Unable to replay gate events from " + file, e);
+        } finally {
+            DataBaseConfig.shutdownConnectionPools();
+        }
+    }
+
+    private static void archiveTickets(int horizonDays, int batchSize){
+        try {
+            TicketArchivalService.Report report = new TicketArchivalService(new TicketDAO(), batchSize)
+                    .archiveOlderThan(horizonDays);
+            System.out.println("Archived " + report.getTickets() + " tickets closed more than " + horizonDays
+                    + " days ago in " + report.getBatches() + " batches");
+        } catch (Exception e) {
+            logger.error("Unable to archive tickets", e);
+        } finally {
+            DataBaseConfig.shutdownConnectionPools();
+        }
+    }
+
+    /**
+     * Exports the tickets closed and entered between the two days included, all of them when
+     * a day is missing.
+     */
+    private static void exportTickets(Path file, LocalDate firstDay, LocalDate lastDay){
+        try {
+            ZoneId zoneId = ZoneId.systemDefault();
+            Date from = firstDay == null ? new Date(0) : Date.from(firstDay.atStartOfDay(zoneId).toInstant());
+            Date to = lastDay == null ? new Date() : Date.from(lastDay.plusDays(1).atStartOfDay(zoneId).toInstant());
+            long tickets = new TicketExportService(new TicketDAO()).export(from, to, file);
+            System.out.println("Exported " + tickets + " tickets to " + file);
+        } catch (Exception e) {
+            logger.error("Unable to export tickets to " + file, e);
+        } finally {
+            DataBaseConfig.shutdownConnectionPools();
+        }
+    }
+
+    private static void printReport(LocalDate firstDay, LocalDate lastDay){
+        try {
+            ZoneId zoneId = ZoneId.systemDefault();
+            Date from = Date.from(firstDay.atStartOfDay(zoneId).toInstant());
+            Date to = Date.from(lastDay.plusDays(1).atStartOfDay(zoneId).toInstant());
+            ReportingService.Report report = new ReportingService(new TicketDAO()).report(from, to);
+            for (LocalDate day : report.getDays()) {
+                StringBuilder line = new StringBuilder(day.toString());
+                for (ParkingType parkingType : ParkingType.values()) {
+                    line.append(' ').append(parkingType).append(' ').append(formatCents(report.getRevenueInCents(day, parkingType)));
+                }
+                System.out.println(line);
+            }
+            for (ParkingType parkingType : ParkingType.values()) {
+                System.out.println(parkingType + ": revenue " + formatCents(report.getRevenueInCents(parkingType))
+                        + ", average stay " + report.getAverageStayMillis(parkingType) / 60000 + " min");
+            }
+            System.out.println("Revenue " + formatCents(report.getRevenueInCents()) + " from " + report.getClosedTickets()
+                    + " closed tickets, average stay " + report.getAverageStayMillis() / 60000 + " min");
+            System.out.println("Peak occupancy " + report.getPeakOccupancy()
+                    + (report.getPeakOccupancy() == 0 ? "" : " at " + new Date(report.getPeakTime())));
+            System.out.println(report.getEntries() + " entries, " + Math.round(report.getRecurringShare() * 100)
+                    + "% by recurring customers");
+        } catch (Exception e) {
+            logger.error("Unable to report from " + firstDay + " to " + lastDay, e);
+        } finally {
+            DataBaseConfig.shutdownConnectionPools();
+        }
+    }
+
+    private static String formatCents(long cents){
+        return String.format("%d.%02d", cents / 100, cents % 100);
+    }
+
+    private static void startHttpServer(int port){
+        try {
+            GateHttpServer server = new GateHttpServer(InteractiveShell.createParkingService(null), port,
+                    GateHttpServer.DEFAULT_WORKER_THREADS);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            server.start();
+        } catch (Exception e) {
+            logger.error("Unable to start the gate HTTP server", e);
+        }
     }
 }
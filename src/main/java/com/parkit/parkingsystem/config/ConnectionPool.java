@@ -0,0 +1,346 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of physical connections. Borrowed connections are handed out as proxies
+ * whose close() gives the connection back to the pool instead of closing it. Each physical
+ * connection keeps its prepared statements open in a {@link StatementCache}, so the same SQL
+ * is parsed once per connection rather than once per DAO call.
+ */
+public class ConnectionPool {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowTimeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+    private final AtomicLong totalBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final StatementStatistics statementStatistics = new StatementStatistics();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory connectionFactory, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, int validationTimeoutSeconds) {
+        this(connectionFactory, maxSize, borrowTimeoutMillis, idleTimeoutMillis, validationTimeoutSeconds,
+                DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    public ConnectionPool(ConnectionFactory connectionFactory, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, int validationTimeoutSeconds, int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be greater than zero");
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        if (idleTimeoutMillis > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "connection-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1000, idleTimeoutMillis / 2);
+            evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    public Connection borrowConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if (pooled == null) {
+                Connection physical = connectionFactory.create();
+                pooled = new PooledConnection(physical, new StatementCache(physical, statementCacheSize, statementStatistics));
+                createdCount.incrementAndGet();
+            }
+            recordBorrow(System.nanoTime() - start);
+            activeCount.incrementAndGet();
+            return wrap(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleConnection() {
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            if (isExpired(idle, System.currentTimeMillis()) || !isValid(idle.connection.physical)) {
+                discard(idle.connection);
+                continue;
+            }
+            return idle.connection;
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(IdleConnection idle, long now) {
+        return idleTimeoutMillis > 0 && (now - idle.returnedAt) > idleTimeoutMillis;
+    }
+
+    private void recordBorrow(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalBorrowWaitNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxBorrowWaitNanos.get())) {
+            if (maxBorrowWaitNanos.compareAndSet(max, waitNanos)) {
+                break;
+            }
+        }
+    }
+
+    void giveBack(PooledConnection pooled) {
+        activeCount.decrementAndGet();
+        Connection physical = pooled.physical;
+        try {
+            if (closed || physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            pooled.statementCache.release();
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            idleConnections.offerFirst(new IdleConnection(pooled, System.currentTimeMillis()));
+        } catch (SQLException e) {
+            logger.error("Error while returning connection to the pool", e);
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<IdleConnection> iterator = idleConnections.descendingIterator();
+        while (iterator.hasNext()) {
+            IdleConnection idle = iterator.next();
+            if (isExpired(idle, now) && idleConnections.remove(idle)) {
+                discard(idle.connection);
+            }
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        discardedCount.incrementAndGet();
+        try {
+            // Closes its cached statements as well
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing pooled connection", e);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            discard(idle.connection);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getBorrowTimeoutCount() {
+        return borrowTimeoutCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getDiscardedCount() {
+        return discardedCount.get();
+    }
+
+    public long getMaxBorrowWaitNanos() {
+        return maxBorrowWaitNanos.get();
+    }
+
+    public double getAverageBorrowWaitNanos() {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : (double) totalBorrowWaitNanos.get() / count;
+    }
+
+    public StatementStatistics getStatementStatistics() {
+        return statementStatistics;
+    }
+
+    private Connection wrap(PooledConnection pooled) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(pooled));
+    }
+
+    private static final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+
+        private PooledConnection(Connection physical, StatementCache statementCache) {
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+    }
+
+    private static final class IdleConnection {
+        private final PooledConnection connection;
+        private final long returnedAt;
+
+        private IdleConnection(PooledConnection connection, long returnedAt) {
+            this.connection = connection;
+            this.returnedAt = returnedAt;
+        }
+    }
+
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Connection physical;
+        private boolean returned;
+
+        private PooledConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.physical = pooled.physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close": {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed": {
+                    return returned || physical.isClosed();
+                }
+                case "equals": {
+                    return proxy == args[0];
+                }
+                case "hashCode": {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString": {
+                    return "Pooled" + physical;
+                }
+                case "prepareStatement": {
+                    if (!returned && isCacheable(args)) {
+                        int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return pooled.statementCache.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+                    }
+                    // Other forms and returned connections go to the physical connection
+                    return invokePhysical(method, args);
+                }
+                default: {
+                    return invokePhysical(method, args);
+                }
+            }
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Only prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) go through the
+     * statement cache.
+     */
+    private static boolean isCacheable(Object[] args) {
+        return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+    }
+}
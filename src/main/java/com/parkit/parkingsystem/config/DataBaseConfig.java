@@ -4,23 +4,86 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    // One pool per JDBC url, shared by every DAO pointing at the same database
+    private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    private final DataBaseSettings settings;
+
+    public DataBaseConfig() {
+        this(DataBaseSettings.getDefault());
+    }
+
+    public DataBaseConfig(DataBaseSettings settings) {
+        this.settings = settings;
+    }
+
+    public DataBaseSettings getSettings() {
+        return settings;
+    }
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+        Connection transactionConnection = UnitOfWork.currentConnection(this);
+        if (transactionConnection != null) {
+            return transactionConnection;
+        }
+        return getConnectionPool().borrowConnection();
+    }
+
+    public ConnectionPool getConnectionPool() throws ClassNotFoundException {
+        ConnectionPool pool = pools.get(getUrl());
+        if (pool == null) {
+            Class.forName(getDriverClassName());
+            pool = pools.computeIfAbsent(getUrl(), url -> createConnectionPool());
+        }
+        return pool;
+    }
+
+    protected ConnectionPool createConnectionPool() {
+        return new ConnectionPool(this::openConnection, settings.getPoolMaxSize(), settings.getPoolBorrowTimeoutMillis(),
+                settings.getPoolIdleTimeoutMillis(), settings.getPoolValidationTimeoutSeconds(),
+                settings.getPoolStatementCacheSize());
+    }
+
+    protected Connection openConnection() throws SQLException {
+        logger.debug("Create DB connection");
+        return DriverManager.getConnection(getUrl(), getUser(), getPassword());
+    }
+
+    protected String getDriverClassName() {
+        return settings.getDriverClassName();
+    }
+
+    protected String getUrl() {
+        return settings.getUrl();
+    }
+
+    protected String getUser() {
+        return settings.getUser();
+    }
+
+    protected String getPassword() {
+        return settings.getPassword();
+    }
+
+    public static void shutdownConnectionPools() {
+        for (ConnectionPool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
     }
 
     public void closeConnection(Connection con){
         if(con!=null){
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.debug("Closing DB connection");
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
@@ -31,7 +94,7 @@ public class DataBaseConfig {
         if(ps!=null){
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -42,7 +105,7 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
@@ -0,0 +1,207 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Database connection and pool settings. They are read, each layer overriding the previous one, from:
+ * <ol>
+ * <li>database.properties on the classpath,</li>
+ * <li>the file named by the parkit.database.file system property,</li>
+ * <li>environment variables, the key upper-cased with dots turned into underscores and
+ * prefixed with PARKIT_ (PARKIT_DB_POOL_MAXSIZE for db.pool.maxSize),</li>
+ * <li>system properties, the key prefixed with parkit. (-Dparkit.db.backend=h2).</li>
+ * </ol>
+ * The h2 backend runs an embedded database in MySQL mode, in memory unless db.h2.path names a
+ * file; the schema migrations create the same tables as on MySQL.
+ */
+public class DataBaseSettings {
+
+    private static final Logger logger = LogManager.getLogger("DataBaseSettings");
+
+    public static final String SETTINGS_FILE_PROPERTY = "parkit.database.file";
+    private static final String SETTINGS_RESOURCE = "database.properties";
+    private static final String SYSTEM_PROPERTY_PREFIX = "parkit.";
+    private static final String ENVIRONMENT_PREFIX = "PARKIT_";
+
+    private static final String[] KEYS = {
+            "db.backend", "db.url", "db.host", "db.port", "db.name", "db.user", "db.password", "db.h2.path",
+            "db.pool.maxSize", "db.pool.borrowTimeoutMillis", "db.pool.idleTimeoutMillis",
+            "db.pool.validationTimeoutSeconds", "db.pool.statementCacheSize",
+            "db.mysql.useServerPrepStmts", "db.mysql.cachePrepStmts", "db.mysql.rewriteBatchedStatements"
+    };
+
+    public enum Backend {
+        MYSQL, H2
+    }
+
+    private static volatile DataBaseSettings defaultSettings;
+
+    private final Properties properties;
+
+    public DataBaseSettings(Properties properties) {
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+    }
+
+    /**
+     * The settings of the application, loaded once.
+     */
+    public static DataBaseSettings getDefault() {
+        DataBaseSettings settings = defaultSettings;
+        if (settings == null) {
+            synchronized (DataBaseSettings.class) {
+                settings = defaultSettings;
+                if (settings == null) {
+                    settings = load(System.getenv(), System.getProperties());
+                    defaultSettings = settings;
+                    logger.info("Using " + settings.getBackend() + " database " + settings.getUrl());
+                }
+            }
+        }
+        return settings;
+    }
+
+    public static DataBaseSettings load(Map<String, String> environment, Properties systemProperties) {
+        Properties properties = new Properties();
+        try (InputStream in = DataBaseSettings.class.getClassLoader().getResourceAsStream(SETTINGS_RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to read " + SETTINGS_RESOURCE + ", using the default database settings", e);
+        }
+        String settingsFile = systemProperties.getProperty(SETTINGS_FILE_PROPERTY);
+        if (settingsFile != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(settingsFile), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read database settings from " + settingsFile, e);
+            }
+        }
+        for (String key : KEYS) {
+            String variable = environment.get(ENVIRONMENT_PREFIX + key.toUpperCase().replace('.', '_'));
+            if (variable != null) {
+                properties.setProperty(key, variable);
+            }
+        }
+        for (String key : KEYS) {
+            String systemProperty = systemProperties.getProperty(SYSTEM_PROPERTY_PREFIX + key);
+            if (systemProperty != null) {
+                properties.setProperty(key, systemProperty);
+            }
+        }
+        return new DataBaseSettings(properties);
+    }
+
+    /**
+     * Settings for an in-memory embedded database of the given name, for tests and benchmarks.
+     */
+    public static DataBaseSettings embedded(String databaseName) {
+        Properties properties = new Properties();
+        properties.setProperty("db.backend", "h2");
+        properties.setProperty("db.name", databaseName);
+        return new DataBaseSettings(properties);
+    }
+
+    /**
+     * Returns a copy of these settings with one value replaced.
+     */
+    public DataBaseSettings with(String key, String value) {
+        DataBaseSettings settings = new DataBaseSettings(properties);
+        settings.properties.setProperty(key, value);
+        return settings;
+    }
+
+    public Backend getBackend() {
+        return Backend.valueOf(get("db.backend", "mysql").trim().toUpperCase());
+    }
+
+    public String getDriverClassName() {
+        return getBackend() == Backend.H2 ? "org.h2.Driver" : "com.mysql.cj.jdbc.Driver";
+    }
+
+    /**
+     * The JDBC url given by db.url, or else built from the backend, the database name and,
+     * for MySQL, the host, port and driver tuning flags.
+     */
+    public String getUrl() {
+        String url = properties.getProperty("db.url");
+        if (url != null && !url.trim().isEmpty()) {
+            return url.trim();
+        }
+        String name = get("db.name", "prod");
+        if (getBackend() == Backend.H2) {
+            String path = properties.getProperty("db.h2.path");
+            return (path == null ? "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1" : "jdbc:h2:file:" + path)
+                    + ";MODE=MySQL";
+        }
+        // Server-side prepared statements, so a statement kept by the pool is parsed by MySQL once
+        return "jdbc:mysql://" + get("db.host", "localhost") + ":" + getInt("db.port", 3306) + "/" + name
+                + "?useServerPrepStmts=" + getBoolean("db.mysql.useServerPrepStmts", true)
+                + "&cachePrepStmts=" + getBoolean("db.mysql.cachePrepStmts", true)
+                + "&rewriteBatchedStatements=" + getBoolean("db.mysql.rewriteBatchedStatements", true);
+    }
+
+    public String getUser() {
+        return get("db.user", getBackend() == Backend.H2 ? "sa" : "root");
+    }
+
+    public String getPassword() {
+        return get("db.password", getBackend() == Backend.H2 ? "" : "rootroot");
+    }
+
+    public int getPoolMaxSize() {
+        return getInt("db.pool.maxSize", 10);
+    }
+
+    public long getPoolBorrowTimeoutMillis() {
+        return getLong("db.pool.borrowTimeoutMillis", 30000);
+    }
+
+    public long getPoolIdleTimeoutMillis() {
+        return getLong("db.pool.idleTimeoutMillis", 600000);
+    }
+
+    public int getPoolValidationTimeoutSeconds() {
+        return getInt("db.pool.validationTimeoutSeconds", 2);
+    }
+
+    public int getPoolStatementCacheSize() {
+        return getInt("db.pool.statementCacheSize", ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    private String get(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    private int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Database setting " + key + " is not a number: " + value);
+        }
+    }
+
+    private boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+}
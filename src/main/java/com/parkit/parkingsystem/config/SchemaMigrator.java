@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the versioned scripts of src/main/resources/db/migration in order and records
+ * them in the schema_version table. A database created by hand from Data.sql before the
+ * migrations existed is baselined at version 1.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    private static final String MIGRATION_LOCATION = "db/migration/";
+
+    static final String[] MIGRATIONS = {
+            "V1__create_parking_and_ticket.sql",
+            "V2__ticket_lookup_indexes.sql",
+            "V3__ticket_journal_checkpoint.sql",
+            "V4__parking_lots_and_levels.sql",
+            "V5__ticket_in_time_index.sql",
+            "V6__ticket_archive.sql",
+            "V7__reservation.sql"
+    };
+
+    private static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version(VERSION int PRIMARY KEY, DESCRIPTION varchar(200) NOT NULL, APPLIED_AT DATETIME NOT NULL)";
+    private static final String GET_SCHEMA_VERSIONS = "select VERSION from schema_version";
+    private static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, APPLIED_AT) values(?,?,?)";
+    private static final String CHECK_PARKING_TABLE = "select 1 from parking where 1 = 0";
+
+    private final DataBaseConfig dataBaseConfig;
+
+    public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Applies the pending migrations and returns how many were applied.
+     */
+    public int migrate() throws SQLException, ClassNotFoundException, IOException {
+        int applied = 0;
+        try (Connection con = dataBaseConfig.getConnection()) {
+            try (Statement statement = con.createStatement()) {
+                statement.execute(CREATE_SCHEMA_VERSION);
+            }
+
+            TreeSet<Integer> appliedVersions = getAppliedVersions(con);
+            if (appliedVersions.isEmpty() && parkingTableExists(con)) {
+                logger.info("Baselining existing schema at version 1");
+                saveVersion(con, 1, MIGRATIONS[0]);
+                appliedVersions.add(1);
+            }
+
+            for (String migration : MIGRATIONS) {
+                int version = versionOf(migration);
+                if (appliedVersions.contains(version)) {
+                    continue;
+                }
+                logger.info("Applying schema migration " + migration);
+                con.setAutoCommit(false);
+                try (Statement statement = con.createStatement()) {
+                    for (String sql : readStatements(MIGRATION_LOCATION + migration)) {
+                        statement.execute(sql);
+                    }
+                    saveVersion(con, version, migration);
+                    con.commit();
+                } catch (SQLException | IOException e) {
+                    con.rollback();
+                    throw e;
+                } finally {
+                    con.setAutoCommit(true);
+                }
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private TreeSet<Integer> getAppliedVersions(Connection con) throws SQLException {
+        TreeSet<Integer> versions = new TreeSet<>();
+        try (Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery(GET_SCHEMA_VERSIONS)) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private boolean parkingTableExists(Connection con) {
+        try (Statement statement = con.createStatement()) {
+            statement.executeQuery(CHECK_PARKING_TABLE).close();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void saveVersion(Connection con, int version, String migration) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(SAVE_SCHEMA_VERSION)) {
+            ps.setInt(1, version);
+            ps.setString(2, migration);
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            ps.executeUpdate();
+        }
+    }
+
+    static int versionOf(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    static List<String> readStatements(String resource) throws IOException {
+        String script;
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Migration script not found: " + resource);
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                script = reader.lines()
+                        .filter(line -> !line.trim().startsWith("--"))
+                        .collect(Collectors.joining("\n"));
+            }
+        }
+        script = script.replaceAll("(?s)/\\*.*?\\*/", "");
+
+        List<String> statements = new ArrayList<>();
+        for (String sql : script.split(";")) {
+            if (!sql.trim().isEmpty()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+}
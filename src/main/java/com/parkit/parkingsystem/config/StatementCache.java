@@ -0,0 +1,205 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepared statements of one physical connection, kept open across borrows so that a DAO
+ * preparing the same SQL again gets the statement the database already parsed. Statements are
+ * handed out as proxies whose close() clears the parameters and gives the statement back to
+ * the cache. The least recently used statement is closed when the cache is full.
+ */
+final class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("StatementCache");
+
+    private final Connection physical;
+    private final StatementStatistics statistics;
+    private final Map<String, CachedStatement> statements;
+
+    StatementCache(Connection physical, int maxSize, StatementStatistics statistics) {
+        this.physical = physical;
+        this.statistics = statistics;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached statement for the SQL, preparing it on first use. A statement still in
+     * use, for instance by a caller holding two at once, is not shared: a second one is
+     * prepared and closed for good after use.
+     */
+    PreparedStatement prepare(Connection connection, String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "keys:" + sql : sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            statistics.recordCacheHit(sql);
+        } else {
+            statistics.recordPrepare(sql);
+            PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+            if (cached == null) {
+                cached = new CachedStatement(sql, statement);
+                statements.put(key, cached);
+            } else {
+                cached = new CachedStatement(sql, statement);
+                cached.evicted = true;
+            }
+        }
+        cached.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new StatementHandler(connection, cached));
+    }
+
+    /**
+     * Called when the connection goes back to the pool. A statement its borrower did not close
+     * could still be used through the old proxy, so it is closed rather than shared.
+     */
+    void release() {
+        List<String> leaked = new ArrayList<>();
+        for (Map.Entry<String, CachedStatement> entry : statements.entrySet()) {
+            if (entry.getValue().inUse) {
+                leaked.add(entry.getKey());
+            }
+        }
+        for (String key : leaked) {
+            statements.remove(key).evict();
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    private final class CachedStatement {
+        private final String sql;
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                close();
+            }
+        }
+
+        private void giveBack() {
+            inUse = false;
+            if (evicted) {
+                close();
+                return;
+            }
+            try {
+                ResultSet resultSet = statement.getResultSet();
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                logger.error("Error resetting cached statement, closing it", e);
+                statements.values().remove(this);
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.error("Error closing cached statement", e);
+            }
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Connection connection;
+        private final CachedStatement cached;
+        private boolean closed;
+
+        private StatementHandler(Connection connection, CachedStatement cached) {
+            this.connection = connection;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close": {
+                    if (!closed) {
+                        closed = true;
+                        cached.giveBack();
+                    }
+                    return null;
+                }
+                case "isClosed": {
+                    return closed || cached.statement.isClosed();
+                }
+                case "getConnection": {
+                    return connection;
+                }
+                case "equals": {
+                    return proxy == args[0];
+                }
+                case "hashCode": {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString": {
+                    return "Cached" + cached.statement;
+                }
+                default: {
+                    if (closed) {
+                        throw new SQLException("Statement has already been closed");
+                    }
+                    if (!method.getName().startsWith("execute")) {
+                        try {
+                            return method.invoke(cached.statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                    long start = System.nanoTime();
+                    boolean failed = true;
+                    try {
+                        Object result = method.invoke(cached.statement, args);
+                        failed = false;
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        statistics.recordExecution(cached.sql, System.nanoTime() - start, failed);
+                    }
+                }
+            }
+        }
+    }
+}
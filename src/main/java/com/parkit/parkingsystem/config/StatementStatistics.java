@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Histogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.StatementNames;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, per SQL statement, how many times it was prepared on a physical connection and how
+ * many times it was executed. A statement served from the statement cache is executed without
+ * being prepared again, so in steady state the hot path shows a few prepares (one per pooled
+ * connection) for many executions. Execution times and failures also go to the metrics
+ * registry, labelled with the DBConstants name of the statement.
+ */
+public class StatementStatistics {
+
+    private static final class Counters {
+        private final LongAdder prepares = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder executions = new LongAdder();
+        private final Histogram latency;
+        private final Counter errors;
+
+        private Counters(String sql) {
+            String statement = StatementNames.of(sql);
+            latency = MetricsRegistry.getDefault().timer("db_statement_seconds", "statement", statement);
+            errors = MetricsRegistry.getDefault().counter("db_statement_errors_total", "statement", statement);
+        }
+    }
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    void recordPrepare(String sql) {
+        countersOf(sql).prepares.increment();
+    }
+
+    void recordCacheHit(String sql) {
+        countersOf(sql).cacheHits.increment();
+    }
+
+    void recordExecution(String sql, long nanos, boolean failed) {
+        Counters sqlCounters = countersOf(sql);
+        sqlCounters.executions.increment();
+        sqlCounters.latency.record(nanos);
+        if (failed) {
+            sqlCounters.errors.increment();
+        }
+    }
+
+    private Counters countersOf(String sql) {
+        Counters sqlCounters = counters.get(sql);
+        return sqlCounters != null ? sqlCounters : counters.computeIfAbsent(sql, Counters::new);
+    }
+
+    public Set<String> getStatements() {
+        return new TreeSet<>(counters.keySet());
+    }
+
+    public long getPrepareCount(String sql) {
+        Counters sqlCounters = counters.get(sql);
+        return sqlCounters == null ? 0 : sqlCounters.prepares.sum();
+    }
+
+    public long getCacheHitCount(String sql) {
+        Counters sqlCounters = counters.get(sql);
+        return sqlCounters == null ? 0 : sqlCounters.cacheHits.sum();
+    }
+
+    public long getExecutionCount(String sql) {
+        Counters sqlCounters = counters.get(sql);
+        return sqlCounters == null ? 0 : sqlCounters.executions.sum();
+    }
+
+    public long getPrepareCount() {
+        long total = 0;
+        for (Counters sqlCounters : counters.values()) {
+            total += sqlCounters.prepares.sum();
+        }
+        return total;
+    }
+
+    public long getCacheHitCount() {
+        long total = 0;
+        for (Counters sqlCounters : counters.values()) {
+            total += sqlCounters.cacheHits.sum();
+        }
+        return total;
+    }
+
+    public long getExecutionCount() {
+        long total = 0;
+        for (Counters sqlCounters : counters.values()) {
+            total += sqlCounters.executions.sum();
+        }
+        return total;
+    }
+}
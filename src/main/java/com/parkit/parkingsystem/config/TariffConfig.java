@@ -0,0 +1,119 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.service.TariffTable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the current tariff. The tariff comes from the file named by the parkit.tariff.file
+ * system property, or else from tariff.properties on the classpath. A file is watched for
+ * changes and recompiled in the background; readers always see a complete table, and a file
+ * that fails to compile leaves the previous table in place.
+ */
+public class TariffConfig {
+
+    private static final Logger logger = LogManager.getLogger("TariffConfig");
+
+    public static final String TARIFF_FILE_PROPERTY = "parkit.tariff.file";
+    private static final String TARIFF_RESOURCE = "tariff.properties";
+
+    private final Path file;
+    private volatile TariffTable tariffTable;
+    private long lastModified;
+    private ScheduledExecutorService watcher;
+
+    public TariffConfig(TariffTable tariffTable) {
+        this.file = null;
+        this.tariffTable = tariffTable;
+    }
+
+    public TariffConfig(Path file) throws IOException {
+        this.file = file;
+        this.lastModified = Files.getLastModifiedTime(file).toMillis();
+        this.tariffTable = TariffTable.compile(readProperties(file));
+    }
+
+    public static TariffConfig load() throws IOException {
+        String tariffFile = System.getProperty(TARIFF_FILE_PROPERTY);
+        if (tariffFile != null) {
+            logger.info("Loading tariff from " + tariffFile);
+            return new TariffConfig(Paths.get(tariffFile));
+        }
+        try (InputStream in = TariffConfig.class.getClassLoader().getResourceAsStream(TARIFF_RESOURCE)) {
+            if (in == null) {
+                logger.info("No tariff configured, using the default fares");
+                return new TariffConfig(TariffTable.defaultTable());
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            return new TariffConfig(TariffTable.compile(properties));
+        }
+    }
+
+    public TariffTable getTariffTable() {
+        return tariffTable;
+    }
+
+    /**
+     * Recompiles the tariff file when it changed since the last load. Returns true when a new
+     * table was installed.
+     */
+    public synchronized boolean reloadIfModified() {
+        if (file == null) {
+            return false;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == lastModified) {
+                return false;
+            }
+            TariffTable reloaded = TariffTable.compile(readProperties(file));
+            lastModified = modified;
+            tariffTable = reloaded;
+            logger.info("Reloaded tariff from " + file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to reload tariff from " + file + ", keeping the current tariff", e);
+            return false;
+        }
+    }
+
+    public synchronized void watch(long periodMillis) {
+        if (file == null || watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tariff-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadIfModified, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    private static Properties readProperties(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,191 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Runs a use case on a single connection inside a single transaction. While a unit of work is
+ * active on the current thread, every {@link DataBaseConfig#getConnection()} call returns the
+ * same connection, borrowed lazily on first use, and closing it is a no-op. The transaction is
+ * committed when the work returns and rolled back when it throws.
+ */
+public class UnitOfWork {
+
+    private static final Logger logger = LogManager.getLogger("UnitOfWork");
+
+    public interface Work<T> {
+        T execute() throws Exception;
+    }
+
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    private Connection connection;
+    private Connection sharedConnection;
+    private final List<Runnable> beforeCommitActions = new ArrayList<>();
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
+    private final List<Runnable> afterRollbackActions = new ArrayList<>();
+    private final Map<Object, Object> resources = new HashMap<>();
+
+    private UnitOfWork() {
+    }
+
+    public static <T> T execute(Work<T> work) throws Exception {
+        if (current.get() != null) {
+            // Join the unit of work already running on this thread
+            return work.execute();
+        }
+
+        UnitOfWork unitOfWork = new UnitOfWork();
+        current.set(unitOfWork);
+        try {
+            T result = work.execute();
+            unitOfWork.commit();
+            return result;
+        } catch (Exception e) {
+            unitOfWork.rollback();
+            throw e;
+        } finally {
+            current.remove();
+            unitOfWork.release();
+        }
+    }
+
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Runs the action right before the current unit of work commits, or right away outside of
+     * one. An exception thrown by the action rolls the unit of work back.
+     */
+    public static void beforeCommit(Runnable action) {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null) {
+            action.run();
+        } else {
+            unitOfWork.beforeCommitActions.add(action);
+        }
+    }
+
+    /**
+     * Runs the action once the current unit of work has committed, or right away outside of one.
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null) {
+            action.run();
+        } else {
+            unitOfWork.afterCommitActions.add(action);
+        }
+    }
+
+    /**
+     * Runs the action if the current unit of work is rolled back. Does nothing outside of one.
+     */
+    public static void afterRollback(Runnable action) {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork != null) {
+            unitOfWork.afterRollbackActions.add(action);
+        }
+    }
+
+    /**
+     * Returns the state bound to the key in the current unit of work, creating it on first
+     * use, or null outside of one.
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> R resource(Object key, Supplier<R> factory) {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null) {
+            return null;
+        }
+        return (R) unitOfWork.resources.computeIfAbsent(key, k -> factory.get());
+    }
+
+    static Connection currentConnection(DataBaseConfig dataBaseConfig) throws ClassNotFoundException, SQLException {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null) {
+            return null;
+        }
+        if (unitOfWork.connection == null) {
+            Connection connection = dataBaseConfig.getConnectionPool().borrowConnection();
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            unitOfWork.connection = connection;
+            unitOfWork.sharedConnection = unclosable(connection);
+        }
+        return unitOfWork.sharedConnection;
+    }
+
+    private void commit() throws SQLException {
+        for (Runnable action : beforeCommitActions) {
+            action.run();
+        }
+        if (connection != null) {
+            connection.commit();
+        }
+        runAll(afterCommitActions);
+    }
+
+    private void rollback() {
+        if (connection != null) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back transaction", e);
+            }
+        }
+        runAll(afterRollbackActions);
+    }
+
+    private void release() {
+        if (connection != null) {
+            try {
+                connection.setAutoCommit(true);
+                connection.close();
+            } catch (SQLException e) {
+                logger.error("Error while releasing transaction connection", e);
+            }
+        }
+    }
+
+    private static void runAll(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.error("Error while running transaction callback", e);
+            }
+        }
+    }
+
+    private static Connection unclosable(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                UnitOfWork.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -2,13 +2,39 @@ package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
 
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_NEXT_PARKING_SPOT = "select PARKING_NUMBER, LEVEL_NUMBER from parking where LOT_NUMBER = ? and TYPE = ? and AVAILABLE = true order by LEVEL_NUMBER, PARKING_NUMBER limit 1";
+    public static final String GET_AVAILABLE_PARKING_SPOTS = "select PARKING_NUMBER, LEVEL_NUMBER from parking where LOT_NUMBER = ? and TYPE = ? and AVAILABLE = true order by LEVEL_NUMBER, PARKING_NUMBER";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE, LOT_NUMBER, LEVEL_NUMBER from parking";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String RECONCILE_PARKING_SPOT = "update parking set AVAILABLE = not exists (select 1 from ticket where ticket.PARKING_NUMBER = parking.PARKING_NUMBER and ticket.OUT_TIME is null) where PARKING_NUMBER = ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set available = false where PARKING_NUMBER = ? and available = true";
 
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
-    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
+    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=? and OUT_TIME is null";
     public static final String UPDATE_TICKET_FOR_TEST = "update ticket set IN_TIME=? where ID=?";
+    public static final String UPDATE_TICKET_BY_VEHICLE_AND_IN_TIME = "update ticket set PRICE=?, OUT_TIME=? where VEHICLE_REG_NUMBER=? and IN_TIME=? and OUT_TIME is null";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
     public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
 
-    public static final String GET_NB_TICKET = "select count(ID) as NB_TICKET from ticket where VEHICLE_REG_NUMBER = ?";
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.VEHICLE_REG_NUMBER, p.TYPE from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.OUT_TIME is null order by t.IN_TIME";
+    public static final String GET_NB_TICKET = "select (select count(ID) from ticket where VEHICLE_REG_NUMBER = ?) + coalesce((select NB_TICKET from visit_count_archive where VEHICLE_REG_NUMBER = ?), 0) as NB_TICKET";
+    public static final String GET_RECENT_NB_TICKETS = "select t.VEHICLE_REG_NUMBER, count(t.ID) + coalesce(max(a.NB_TICKET), 0) as NB_TICKET from ticket t left join visit_count_archive a on a.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER group by t.VEHICLE_REG_NUMBER order by max(t.IN_TIME) DESC limit ?";
+    public static final String GET_CLOSED_TICKETS = "select t.ID, p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE, (select count(h.ID) from ticket h where h.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and h.IN_TIME <= t.IN_TIME) + coalesce((select a.NB_TICKET from visit_count_archive a where a.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER), 0) as NB_TICKET from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.ID > ? and t.OUT_TIME >= ? and t.OUT_TIME < ? order by t.ID limit ?";
+    public static final String GET_TICKETS_PARKED_AT = "select p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE, (exists(select h.ID from ticket h where h.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and h.IN_TIME <= t.IN_TIME and h.ID <> t.ID) or exists(select a.NB_TICKET from visit_count_archive a where a.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER)) as RECURRING from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.IN_TIME < ? and (t.OUT_TIME is null or t.OUT_TIME >= ?) union all select p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE, exists(select h.ID from ticket_archive h where h.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and h.IN_TIME <= t.IN_TIME and h.ID <> t.ID) as RECURRING from ticket_archive t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.IN_TIME < ? and t.OUT_TIME >= ? order by IN_TIME";
+    public static final String GET_TICKETS_ENTERED_BETWEEN = "select p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE, (exists(select h.ID from ticket h where h.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and h.IN_TIME <= t.IN_TIME and h.ID <> t.ID) or exists(select a.NB_TICKET from visit_count_archive a where a.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER)) as RECURRING from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.IN_TIME >= ? and t.IN_TIME < ? order by t.IN_TIME";
+    public static final String GET_ARCHIVED_TICKETS_ENTERED_BETWEEN = "select p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE, exists(select h.ID from ticket_archive h where h.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and h.IN_TIME <= t.IN_TIME and h.ID <> t.ID) as RECURRING from ticket_archive t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.IN_TIME >= ? and t.IN_TIME < ? order by t.IN_TIME";
+    public static final String GET_EXPORTED_TICKETS = "select p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.IN_TIME >= ? and t.IN_TIME < ? and t.OUT_TIME is not null order by t.IN_TIME";
+    public static final String GET_EXPORTED_ARCHIVED_TICKETS = "select p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER from ticket_archive t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.IN_TIME >= ? and t.IN_TIME < ? order by t.IN_TIME";
+
+    public static final String GET_ARCHIVABLE_TICKETS = "select ID, VEHICLE_REG_NUMBER from ticket where OUT_TIME < ? order by OUT_TIME limit ?";
+    public static final String ARCHIVE_TICKET = "insert into ticket_archive(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, ARCHIVE_MONTH) select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, year(OUT_TIME) * 100 + month(OUT_TIME) from ticket where ID = ?";
+    public static final String ADD_ARCHIVED_VISITS = "insert into visit_count_archive(VEHICLE_REG_NUMBER, NB_TICKET) values(?, ?) on duplicate key update NB_TICKET = NB_TICKET + ?";
+    public static final String DELETE_TICKET = "delete from ticket where ID = ?";
+
+    public static final String SAVE_RESERVATION = "insert into reservation(PARKING_NUMBER, VEHICLE_REG_NUMBER, START_TIME, END_TIME) values(?,?,?,?)";
+    public static final String GET_RESERVATIONS = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, START_TIME, END_TIME from reservation where END_TIME > ?";
+    public static final String DELETE_RESERVATION = "delete from reservation where ID = ?";
+
+    public static final String GET_JOURNAL_CHECKPOINT = "select LAST_SEQUENCE from journal_checkpoint where ID = 1";
+    public static final String UPDATE_JOURNAL_CHECKPOINT = "update journal_checkpoint set LAST_SEQUENCE = ? where ID = 1";
 }
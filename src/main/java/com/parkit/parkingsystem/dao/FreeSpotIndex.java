@@ -0,0 +1,374 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory copy of the AVAILABLE column of the parking table, sharded by lot and level: each
+ * level of a lot has its own bitmaps of free spot numbers per parking type, and each lot its
+ * own free spot counts, so gates of different lots never update the same memory. Bits are
+ * flipped with compare-and-set so concurrent gates can claim spots without taking a lock. The
+ * database stays the source of truth: {@link #reset(Collection)} replaces the whole content
+ * with what was read from the parking table. Every bit flipped also moves the free spot count
+ * of its lot and type, and is reported to the occupancy tracker.
+ */
+public class FreeSpotIndex {
+
+    private static final int PARKING_TYPES = ParkingType.values().length;
+
+    /**
+     * The spots of one level of a lot, bit i of a bitmap standing for spot firstParkingNumber + i.
+     */
+    private static final class Shard {
+        private final int levelNumber;
+        private final int firstParkingNumber;
+        private final AtomicLongArray[] freeSpots = new AtomicLongArray[PARKING_TYPES];
+
+        private Shard(int levelNumber, int firstParkingNumber, int lastParkingNumber) {
+            this.levelNumber = levelNumber;
+            this.firstParkingNumber = firstParkingNumber;
+            int words = ((lastParkingNumber - firstParkingNumber) >> 6) + 1;
+            for (int i = 0; i < PARKING_TYPES; i++) {
+                freeSpots[i] = new AtomicLongArray(words);
+            }
+        }
+
+        private int lowestFreeSpot(ParkingType parkingType, IntPredicate excluded) {
+            AtomicLongArray bits = freeSpots[parkingType.ordinal()];
+            for (int word = 0; word < bits.length(); word++) {
+                long value = bits.get(word);
+                while (value != 0) {
+                    int parkingNumber = firstParkingNumber + (word << 6) + Long.numberOfTrailingZeros(value);
+                    if (excluded == null || !excluded.test(parkingNumber)) {
+                        return parkingNumber;
+                    }
+                    value &= value - 1;
+                }
+            }
+            return 0;
+        }
+
+        private int claimLowestFreeSpot(ParkingType parkingType, IntPredicate excluded) {
+            AtomicLongArray bits = freeSpots[parkingType.ordinal()];
+            for (int word = 0; word < bits.length(); word++) {
+                // Free spots of the word the caller does not want
+                long skipped = 0;
+                long value;
+                while (((value = bits.get(word)) & ~skipped) != 0) {
+                    long lowestBit = Long.lowestOneBit(value & ~skipped);
+                    int parkingNumber = firstParkingNumber + (word << 6) + Long.numberOfTrailingZeros(lowestBit);
+                    if (excluded != null && excluded.test(parkingNumber)) {
+                        skipped |= lowestBit;
+                    } else if (bits.compareAndSet(word, value, value & ~lowestBit)) {
+                        return parkingNumber;
+                    }
+                }
+            }
+            return 0;
+        }
+
+        private boolean isFree(ParkingType parkingType, int parkingNumber) {
+            int bit = parkingNumber - firstParkingNumber;
+            return (freeSpots[parkingType.ordinal()].get(bit >> 6) & (1L << bit)) != 0;
+        }
+
+        private boolean setFree(ParkingType parkingType, int parkingNumber, boolean value) {
+            return setBit(freeSpots[parkingType.ordinal()], parkingNumber - firstParkingNumber, value);
+        }
+    }
+
+    /**
+     * The levels of a lot, lowest first, with the free spot counts of the lot.
+     */
+    static final class Lot {
+        private final int lotNumber;
+        private final Shard[] levels;
+        private final AtomicIntegerArray freeCounts = new AtomicIntegerArray(PARKING_TYPES);
+        private final int[] spotCounts = new int[PARKING_TYPES];
+        // Flags of the occupancy tracker, 1 while a notification of the type is queued
+        final AtomicIntegerArray pendingNotifications = new AtomicIntegerArray(PARKING_TYPES);
+
+        private Lot(int lotNumber, int levels) {
+            this.lotNumber = lotNumber;
+            this.levels = new Shard[levels];
+        }
+
+        int getLotNumber() {
+            return lotNumber;
+        }
+    }
+
+    private static final class State {
+        private final Map<Integer, Lot> lots;
+        // By spot number
+        private final ParkingType[] spotTypes;
+        private final Lot[] spotLots;
+        private final Shard[] spotShards;
+
+        private State(Map<Integer, Lot> lots, int maxParkingNumber) {
+            this.lots = lots;
+            spotTypes = new ParkingType[maxParkingNumber + 1];
+            spotLots = new Lot[maxParkingNumber + 1];
+            spotShards = new Shard[maxParkingNumber + 1];
+        }
+    }
+
+    private volatile State state = new State(Collections.emptyMap(), 0);
+    private volatile boolean loaded;
+
+    private final OccupancyTracker occupancyTracker = new OccupancyTracker(this);
+
+    public OccupancyTracker getOccupancyTracker() {
+        return occupancyTracker;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replaces the index content and returns the number of spots whose availability differed.
+     */
+    public synchronized int reset(Collection<ParkingSpot> parkingSpots) {
+        Map<Integer, Map<Integer, List<ParkingSpot>>> spotsByLevelByLot = new TreeMap<>();
+        int maxParkingNumber = 0;
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            if (parkingSpot.getId() <= 0) {
+                continue;
+            }
+            maxParkingNumber = Math.max(maxParkingNumber, parkingSpot.getId());
+            spotsByLevelByLot.computeIfAbsent(parkingSpot.getLotNumber(), lot -> new TreeMap<>())
+                    .computeIfAbsent(parkingSpot.getLevelNumber(), level -> new ArrayList<>())
+                    .add(parkingSpot);
+        }
+
+        Map<Integer, Lot> lots = new TreeMap<>();
+        State newState = new State(Collections.unmodifiableMap(lots), maxParkingNumber);
+        for (Map.Entry<Integer, Map<Integer, List<ParkingSpot>>> lotEntry : spotsByLevelByLot.entrySet()) {
+            Lot lot = new Lot(lotEntry.getKey(), lotEntry.getValue().size());
+            int level = 0;
+            for (Map.Entry<Integer, List<ParkingSpot>> levelEntry : lotEntry.getValue().entrySet()) {
+                int first = Integer.MAX_VALUE;
+                int last = 0;
+                for (ParkingSpot parkingSpot : levelEntry.getValue()) {
+                    first = Math.min(first, parkingSpot.getId());
+                    last = Math.max(last, parkingSpot.getId());
+                }
+                Shard shard = new Shard(levelEntry.getKey(), first, last);
+                lot.levels[level++] = shard;
+                for (ParkingSpot parkingSpot : levelEntry.getValue()) {
+                    int type = parkingSpot.getParkingType().ordinal();
+                    if (newState.spotTypes[parkingSpot.getId()] == null) {
+                        lot.spotCounts[type]++;
+                    }
+                    newState.spotTypes[parkingSpot.getId()] = parkingSpot.getParkingType();
+                    newState.spotLots[parkingSpot.getId()] = lot;
+                    newState.spotShards[parkingSpot.getId()] = shard;
+                    if (parkingSpot.isAvailable() && shard.setFree(parkingSpot.getParkingType(), parkingSpot.getId(), true)) {
+                        lot.freeCounts.incrementAndGet(type);
+                    }
+                }
+            }
+            lots.put(lot.lotNumber, lot);
+        }
+
+        int drift = 0;
+        if (loaded) {
+            State oldState = state;
+            for (ParkingSpot parkingSpot : parkingSpots) {
+                if (parkingSpot.isAvailable() != isFree(oldState, parkingSpot.getId())) {
+                    drift++;
+                }
+            }
+        }
+
+        state = newState;
+        loaded = true;
+        for (Lot lot : newState.lots.values()) {
+            for (ParkingType parkingType : ParkingType.values()) {
+                occupancyTracker.changed(lot, parkingType);
+            }
+        }
+        return drift;
+    }
+
+    /**
+     * Returns the numbers of the lots in the index, in ascending order.
+     */
+    public List<Integer> getLotNumbers() {
+        return new ArrayList<>(state.lots.keySet());
+    }
+
+    Collection<Lot> getLots() {
+        return state.lots.values();
+    }
+
+    public int lowestFreeSpot(ParkingType parkingType) {
+        return lowestFreeSpot(ParkingSpot.DEFAULT_LOT, parkingType);
+    }
+
+    /**
+     * Returns the lowest free spot number of the lowest level with one, for the given lot and
+     * type, or 0 when they are full.
+     */
+    public int lowestFreeSpot(int lotNumber, ParkingType parkingType) {
+        return lowestFreeSpot(lotNumber, parkingType, null);
+    }
+
+    /**
+     * Same as lowestFreeSpot, skipping the spots the excluded filter, when given, accepts.
+     */
+    public int lowestFreeSpot(int lotNumber, ParkingType parkingType, IntPredicate excluded) {
+        Lot lot = state.lots.get(lotNumber);
+        if (lot == null) {
+            return 0;
+        }
+        for (Shard shard : lot.levels) {
+            int parkingNumber = shard.lowestFreeSpot(parkingType, excluded);
+            if (parkingNumber > 0) {
+                return parkingNumber;
+            }
+        }
+        return 0;
+    }
+
+    public int claimLowestFreeSpot(ParkingType parkingType) {
+        return claimLowestFreeSpot(ParkingSpot.DEFAULT_LOT, parkingType);
+    }
+
+    /**
+     * Atomically takes the spot lowestFreeSpot would return out of the index and returns its
+     * number, or 0 when the lot and type are full. Two callers can never be handed the same
+     * spot.
+     */
+    public int claimLowestFreeSpot(int lotNumber, ParkingType parkingType) {
+        return claimLowestFreeSpot(lotNumber, parkingType, null);
+    }
+
+    /**
+     * Same as claimLowestFreeSpot, skipping the spots the excluded filter, when given, accepts.
+     */
+    public int claimLowestFreeSpot(int lotNumber, ParkingType parkingType, IntPredicate excluded) {
+        Lot lot = state.lots.get(lotNumber);
+        if (lot == null) {
+            return 0;
+        }
+        for (Shard shard : lot.levels) {
+            int parkingNumber = shard.claimLowestFreeSpot(parkingType, excluded);
+            if (parkingNumber > 0) {
+                lot.freeCounts.decrementAndGet(parkingType.ordinal());
+                occupancyTracker.changed(lot, parkingType);
+                return parkingNumber;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the availability of a spot and returns true if it changed.
+     */
+    public boolean markAvailable(int parkingNumber, boolean available) {
+        State current = state;
+        if (parkingNumber <= 0 || parkingNumber >= current.spotTypes.length || current.spotTypes[parkingNumber] == null) {
+            return false;
+        }
+        ParkingType parkingType = current.spotTypes[parkingNumber];
+        if (!current.spotShards[parkingNumber].setFree(parkingType, parkingNumber, available)) {
+            return false;
+        }
+        Lot lot = current.spotLots[parkingNumber];
+        if (available) {
+            lot.freeCounts.incrementAndGet(parkingType.ordinal());
+        } else {
+            lot.freeCounts.decrementAndGet(parkingType.ordinal());
+        }
+        occupancyTracker.changed(lot, parkingType);
+        return true;
+    }
+
+    public boolean isFree(int parkingNumber) {
+        return isFree(state, parkingNumber);
+    }
+
+    /**
+     * Returns the lot of the spot, or 0 when the spot is not in the index.
+     */
+    public int lotOf(int parkingNumber) {
+        State current = state;
+        return parkingNumber > 0 && parkingNumber < current.spotLots.length && current.spotLots[parkingNumber] != null
+                ? current.spotLots[parkingNumber].lotNumber : 0;
+    }
+
+    /**
+     * Returns the level of the spot, or 0 when the spot is not in the index.
+     */
+    public int levelOf(int parkingNumber) {
+        State current = state;
+        return parkingNumber > 0 && parkingNumber < current.spotShards.length && current.spotShards[parkingNumber] != null
+                ? current.spotShards[parkingNumber].levelNumber : 0;
+    }
+
+    /**
+     * Returns the number of free spots of the given type in all lots.
+     */
+    public int countFreeSpots(ParkingType parkingType) {
+        int count = 0;
+        for (Lot lot : state.lots.values()) {
+            count += lot.freeCounts.get(parkingType.ordinal());
+        }
+        return count;
+    }
+
+    public int countFreeSpots(int lotNumber, ParkingType parkingType) {
+        Lot lot = state.lots.get(lotNumber);
+        return lot == null ? 0 : lot.freeCounts.get(parkingType.ordinal());
+    }
+
+    /**
+     * Returns the number of spots of the given type in all lots, free or not.
+     */
+    public int countSpots(ParkingType parkingType) {
+        int count = 0;
+        for (Lot lot : state.lots.values()) {
+            count += lot.spotCounts[parkingType.ordinal()];
+        }
+        return count;
+    }
+
+    public int countSpots(int lotNumber, ParkingType parkingType) {
+        Lot lot = state.lots.get(lotNumber);
+        return lot == null ? 0 : lot.spotCounts[parkingType.ordinal()];
+    }
+
+    private static boolean isFree(State current, int parkingNumber) {
+        if (parkingNumber <= 0 || parkingNumber >= current.spotTypes.length || current.spotTypes[parkingNumber] == null) {
+            return false;
+        }
+        return current.spotShards[parkingNumber].isFree(current.spotTypes[parkingNumber], parkingNumber);
+    }
+
+    private static boolean setBit(AtomicLongArray bits, int bit, boolean value) {
+        int word = bit >> 6;
+        long mask = 1L << bit;
+        while (true) {
+            long current = bits.get(word);
+            long updated = value ? (current | mask) : (current & ~mask);
+            if (current == updated) {
+                return false;
+            }
+            if (bits.compareAndSet(word, current, updated)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Free and occupied spot counts per lot and parking type, as kept by the free spot index,
+ * with changes pushed to subscribers such as entrance signs. Listeners are called on a single
+ * notifier thread, never on the gate that moved the count, and a burst of changes to one lot
+ * and type is delivered as a single call with the latest counts.
+ */
+public class OccupancyTracker {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyTracker");
+
+    /**
+     * Called with the counts of a parking type in a lot after they changed.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void occupancyChanged(int lotNumber, ParkingType parkingType, int freeSpots, int occupiedSpots);
+    }
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final FreeSpotIndex freeSpotIndex;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ExecutorService notifier;
+
+    OccupancyTracker(FreeSpotIndex freeSpotIndex) {
+        this.freeSpotIndex = freeSpotIndex;
+    }
+
+    public int getFreeSpots(ParkingType parkingType) {
+        return freeSpotIndex.countFreeSpots(parkingType);
+    }
+
+    public int getOccupiedSpots(ParkingType parkingType) {
+        return freeSpotIndex.countSpots(parkingType) - freeSpotIndex.countFreeSpots(parkingType);
+    }
+
+    public int getFreeSpots(int lotNumber, ParkingType parkingType) {
+        return freeSpotIndex.countFreeSpots(lotNumber, parkingType);
+    }
+
+    public int getOccupiedSpots(int lotNumber, ParkingType parkingType) {
+        return freeSpotIndex.countSpots(lotNumber, parkingType) - freeSpotIndex.countFreeSpots(lotNumber, parkingType);
+    }
+
+    /**
+     * Registers the listener, which is first called with the current counts of every lot and
+     * type.
+     */
+    public synchronized void subscribe(Listener listener) {
+        if (notifier == null) {
+            notifier = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "occupancy-notifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        listeners.add(listener);
+        notifier.execute(() -> {
+            for (int lotNumber : freeSpotIndex.getLotNumbers()) {
+                for (ParkingType parkingType : PARKING_TYPES) {
+                    notify(listener, lotNumber, parkingType);
+                }
+            }
+        });
+    }
+
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops the notifier thread. Listeners are no longer called.
+     */
+    public synchronized void close() {
+        if (notifier != null) {
+            notifier.shutdownNow();
+            notifier = null;
+        }
+        listeners.clear();
+        for (FreeSpotIndex.Lot lot : freeSpotIndex.getLots()) {
+            for (int i = 0; i < PARKING_TYPES.length; i++) {
+                lot.pendingNotifications.set(i, 0);
+            }
+        }
+    }
+
+    void changed(FreeSpotIndex.Lot lot, ParkingType parkingType) {
+        ExecutorService currentNotifier = notifier;
+        AtomicIntegerArray pending = lot.pendingNotifications;
+        if (currentNotifier == null || !pending.compareAndSet(parkingType.ordinal(), 0, 1)) {
+            return;
+        }
+        try {
+            currentNotifier.execute(() -> {
+                pending.set(parkingType.ordinal(), 0);
+                for (Listener listener : listeners) {
+                    notify(listener, lot.getLotNumber(), parkingType);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile
+            pending.set(parkingType.ordinal(), 0);
+        }
+    }
+
+    private void notify(Listener listener, int lotNumber, ParkingType parkingType) {
+        try {
+            listener.occupancyChanged(lotNumber, parkingType, getFreeSpots(lotNumber, parkingType),
+                    getOccupiedSpots(lotNumber, parkingType));
+        } catch (RuntimeException e) {
+            logger.error("Occupancy listener failed", e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open tickets (no out time yet) by vehicle registration number, so an exit can find its
+ * ticket without reading the database. Tickets are kept column by column in parallel arrays
+ * indexed by an open addressing hash table on the plate, with no object per entry. A slot
+ * takes 33 bytes of arrays (29 with compressed references) and the table is kept at most half
+ * full, doubling when it would not be: each parked vehicle costs 2 to 4 slots, about 66 to 132
+ * bytes, plus the plate string. A plate missing from the cache is looked up in the database.
+ */
+public class OpenTicketCache {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private String[] vehicleRegNumbers;
+    private int[] ids;
+    private int[] parkingNumbers;
+    private byte[] parkingTypes;
+    private long[] inTimes;
+    private long[] pricesInCents;
+    private int size;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public OpenTicketCache(int expectedOpenTickets) {
+        allocate(tableSizeFor(expectedOpenTickets * 2));
+    }
+
+    /**
+     * Returns a copy of the open ticket of the vehicle, or null when it is not cached.
+     */
+    public synchronized Ticket get(String vehicleRegNumber) {
+        int slot = slotOf(vehicleRegNumber);
+        if (slot < 0) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        Ticket ticket = new Ticket();
+        ticket.setId(ids[slot]);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumbers[slot], PARKING_TYPES[parkingTypes[slot]], false));
+        ticket.setVehicleRegNumber(vehicleRegNumbers[slot]);
+        ticket.setPrice(pricesInCents[slot] / 100.0);
+        ticket.setInTime(new Date(inTimes[slot]));
+        return ticket;
+    }
+
+    /**
+     * Caches an open ticket, replacing the one cached for the same vehicle. Closed tickets
+     * are ignored.
+     */
+    public synchronized void put(Ticket ticket) {
+        if (ticket.getOutTime() != null || ticket.getParkingSpot() == null) {
+            return;
+        }
+        if ((size + 1) * 2 > vehicleRegNumbers.length) {
+            resize(vehicleRegNumbers.length * 2);
+        }
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        int mask = vehicleRegNumbers.length - 1;
+        int slot = hash(vehicleRegNumber) & mask;
+        while (vehicleRegNumbers[slot] != null && !vehicleRegNumbers[slot].equals(vehicleRegNumber)) {
+            slot = (slot + 1) & mask;
+        }
+        if (vehicleRegNumbers[slot] == null) {
+            size++;
+        }
+        vehicleRegNumbers[slot] = vehicleRegNumber;
+        ids[slot] = ticket.getId();
+        parkingNumbers[slot] = ticket.getParkingSpot().getId();
+        parkingTypes[slot] = (byte) ticket.getParkingSpot().getParkingType().ordinal();
+        inTimes[slot] = ticket.getInTime().getTime();
+        pricesInCents[slot] = Math.round(ticket.getPrice() * 100);
+    }
+
+    public synchronized void remove(String vehicleRegNumber) {
+        int slot = slotOf(vehicleRegNumber);
+        if (slot < 0) {
+            return;
+        }
+        // Shift back the entries of the probe chain that follows, so lookups never stop early
+        int mask = vehicleRegNumbers.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; vehicleRegNumbers[next] != null; next = (next + 1) & mask) {
+            int home = hash(vehicleRegNumbers[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                move(next, hole);
+                hole = next;
+            }
+        }
+        vehicleRegNumbers[hole] = null;
+        size--;
+    }
+
+    public synchronized void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int capacity() {
+        return vehicleRegNumbers.length;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private int slotOf(String vehicleRegNumber) {
+        int mask = vehicleRegNumbers.length - 1;
+        for (int slot = hash(vehicleRegNumber) & mask; vehicleRegNumbers[slot] != null; slot = (slot + 1) & mask) {
+            if (vehicleRegNumbers[slot].equals(vehicleRegNumber)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void move(int from, int to) {
+        vehicleRegNumbers[to] = vehicleRegNumbers[from];
+        ids[to] = ids[from];
+        parkingNumbers[to] = parkingNumbers[from];
+        parkingTypes[to] = parkingTypes[from];
+        inTimes[to] = inTimes[from];
+        pricesInCents[to] = pricesInCents[from];
+    }
+
+    private void resize(int capacity) {
+        String[] oldVehicleRegNumbers = vehicleRegNumbers;
+        int[] oldIds = ids;
+        int[] oldParkingNumbers = parkingNumbers;
+        byte[] oldParkingTypes = parkingTypes;
+        long[] oldInTimes = inTimes;
+        long[] oldPricesInCents = pricesInCents;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldVehicleRegNumbers.length; i++) {
+            if (oldVehicleRegNumbers[i] == null) {
+                continue;
+            }
+            int slot = hash(oldVehicleRegNumbers[i]) & mask;
+            while (vehicleRegNumbers[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            vehicleRegNumbers[slot] = oldVehicleRegNumbers[i];
+            ids[slot] = oldIds[i];
+            parkingNumbers[slot] = oldParkingNumbers[i];
+            parkingTypes[slot] = oldParkingTypes[i];
+            inTimes[slot] = oldInTimes[i];
+            pricesInCents[slot] = oldPricesInCents[i];
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        vehicleRegNumbers = new String[capacity];
+        ids = new int[capacity];
+        parkingNumbers = new int[capacity];
+        parkingTypes = new byte[capacity];
+        inTimes = new long[capacity];
+        pricesInCents = new long[capacity];
+        size = 0;
+    }
+
+    private static int tableSizeFor(int minCapacity) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < minCapacity && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(String vehicleRegNumber) {
+        int h = vehicleRegNumber.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
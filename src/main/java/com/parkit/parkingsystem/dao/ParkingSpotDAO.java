@@ -1,8 +1,10 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -11,29 +13,269 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
 
 public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    private static final int MAX_CLAIM_ATTEMPTS = 10;
+
+    private final FreeSpotIndex freeSpotIndex = new FreeSpotIndex();
+
+    private volatile ReservationDAO reservationDAO;
+
+    /**
+     * Keeps walk-ins away from the spots the reservations hold.
+     */
+    public void setReservationDAO(ReservationDAO reservationDAO) {
+        this.reservationDAO = reservationDAO;
+    }
+
+    /**
+     * Publishes the free and occupied spots of each lot and type, read from the free-spot
+     * index.
+     */
+    public void registerMetrics(MetricsRegistry registry){
+        OccupancyTracker occupancyTracker = getOccupancyTracker();
+        for(int lotNumber : freeSpotIndex.getLotNumbers()){
+            for(ParkingType parkingType : ParkingType.values()){
+                registry.gauge("parking_spots_free", () -> occupancyTracker.getFreeSpots(lotNumber, parkingType),
+                        "lot", String.valueOf(lotNumber), "type", parkingType.name());
+                registry.gauge("parking_spots_occupied", () -> occupancyTracker.getOccupiedSpots(lotNumber, parkingType),
+                        "lot", String.valueOf(lotNumber), "type", parkingType.name());
+            }
+        }
+    }
+
     public int getNextAvailableSlot(ParkingType parkingType){
-        int result=-1;
+        return getNextAvailableSlot(ParkingSpot.DEFAULT_LOT, parkingType);
+    }
+
+    /**
+     * Returns the lowest free spot of the lowest level with one in the lot, 0 when the lot
+     * has no free spot of that type and -1 on database errors. Spots held by a reservation
+     * are left out.
+     */
+    public int getNextAvailableSlot(int lotNumber, ParkingType parkingType){
+        if(isFreeSpotIndexReady()){
+            return freeSpotIndex.lowestFreeSpot(lotNumber, parkingType, heldSpots());
+        }
+        ParkingSpot parkingSpot = getNextAvailableSpot(lotNumber, parkingType, heldSpots());
+        return parkingSpot == null ? -1 : parkingSpot.getId();
+    }
+
+    /**
+     * Looks up the lowest free spot in the database, skipping the held spots, and returns spot
+     * 0 when there is none or null on database errors.
+     */
+    private ParkingSpot getNextAvailableSpot(int lotNumber, ParkingType parkingType, IntPredicate heldSpots){
         try(Connection con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT)) {
+            PreparedStatement ps = con.prepareStatement(heldSpots == null
+                    ? DBConstants.GET_NEXT_PARKING_SPOT : DBConstants.GET_AVAILABLE_PARKING_SPOTS)) {
 
-            ps.setString(1, parkingType.toString());
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                result = rs.getInt(1);;
+            ps.setInt(1, lotNumber);
+            ps.setString(2, parkingType.toString());
+            try(ResultSet rs = ps.executeQuery()) {
+                while(rs.next()){
+                    int parkingNumber = rs.getInt(1);
+                    if(heldSpots == null || !heldSpots.test(parkingNumber)){
+                        return new ParkingSpot(parkingNumber, parkingType, true, lotNumber, rs.getInt(2));
+                    }
+                }
+                return new ParkingSpot(0, parkingType, false, lotNumber, 0);
             }
         }catch (SQLException ex){
             logger.error("Error fetching next available slot",ex);
+            return null;
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public ParkingSpot claimNextAvailableSlot(ParkingType parkingType){
+        return claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, parkingType);
+    }
+
+    /**
+     * Claims the lowest free spot of the given type in the lot in a single step and returns it
+     * already marked as unavailable, or null when the lot has no free spot of that type. The
+     * spot is taken out of the free spot index with a compare-and-set and then claimed in the
+     * database with a conditional update, so two gates can never be handed the same spot.
+     * Spots held by a reservation are left out.
+     */
+    public ParkingSpot claimNextAvailableSlot(int lotNumber, ParkingType parkingType){
+        IntPredicate heldSpots = heldSpots();
+        ParkingSpot freedSpot = claimFreedSpot(lotNumber, parkingType, heldSpots);
+        if(freedSpot != null){
+            return freedSpot;
+        }
+        boolean indexReady = isFreeSpotIndexReady();
+        // Every conflict takes a spot out of the index for good, so index claims always end
+        for(int attempt = 0; indexReady || attempt < MAX_CLAIM_ATTEMPTS; attempt++){
+            int parkingNumber;
+            int levelNumber;
+            if(indexReady){
+                parkingNumber = freeSpotIndex.claimLowestFreeSpot(lotNumber, parkingType, heldSpots);
+                if(parkingNumber > 0 && heldSpots != null && heldSpots.test(parkingNumber)){
+                    // Reserved since it was checked: hand it back, the next attempt skips it
+                    freeSpotIndex.markAvailable(parkingNumber, true);
+                    continue;
+                }
+                levelNumber = freeSpotIndex.levelOf(parkingNumber);
+            } else {
+                ParkingSpot nextSpot = getNextAvailableSpot(lotNumber, parkingType, heldSpots);
+                parkingNumber = nextSpot == null ? -1 : nextSpot.getId();
+                levelNumber = nextSpot == null ? 0 : nextSpot.getLevelNumber();
+            }
+            if(parkingNumber <= 0){
+                return null;
+            }
+            try(Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)) {
+
+                ps.setInt(1, parkingNumber);
+                if(ps.executeUpdate() == 1){
+                    freeSpotIndex.markAvailable(parkingNumber, false);
+                    UnitOfWork.afterRollback(() -> freeSpotIndex.markAvailable(parkingNumber, true));
+                    return new ParkingSpot(parkingNumber, parkingType, false, lotNumber, levelNumber);
+                }
+                // Taken in the database behind the index back: leave it out of the index and retry
+            }catch (SQLException ex){
+                logger.error("Error claiming parking spot " + parkingNumber, ex);
+                if(indexReady){
+                    freeSpotIndex.markAvailable(parkingNumber, true);
+                }
+                return null;
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        logger.error("Unable to claim a " + parkingType + " parking spot after " + MAX_CLAIM_ATTEMPTS + " attempts");
+        return null;
+    }
+
+    /**
+     * Claims the given spot, for the vehicle holding a reservation of it, and returns it
+     * marked as unavailable, or null when it is taken.
+     */
+    public ParkingSpot claimSlot(ParkingSpot reservedSpot){
+        int parkingNumber = reservedSpot.getId();
+        FreedSpots freedSpots = UnitOfWork.resource(this, () -> null);
+        boolean freedInUnitOfWork = freedSpots != null && freedSpots.remove(parkingNumber);
+        boolean indexReady = !freedInUnitOfWork && isFreeSpotIndexReady();
+        if(indexReady && !freeSpotIndex.markAvailable(parkingNumber, false)){
+            return null;
+        }
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)) {
+
+            ps.setInt(1, parkingNumber);
+            if(ps.executeUpdate() == 1){
+                if(indexReady){
+                    UnitOfWork.afterRollback(() -> freeSpotIndex.markAvailable(parkingNumber, true));
+                }
+                return new ParkingSpot(parkingNumber, reservedSpot.getParkingType(), false,
+                        reservedSpot.getLotNumber(), reservedSpot.getLevelNumber());
+            }
+            // Taken in the database behind the index back: leave it out of the index
+        }catch (SQLException ex){
+            logger.error("Error claiming parking spot " + parkingNumber, ex);
+            if(indexReady){
+                freeSpotIndex.markAvailable(parkingNumber, true);
+            }
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
         }
+        return null;
+    }
+
+    /**
+     * Returns true when the spot is free in the free spot index.
+     */
+    public boolean isSpotFree(int parkingNumber){
+        return isFreeSpotIndexReady() && freeSpotIndex.isFree(parkingNumber);
+    }
 
-        return result;
+    /**
+     * Filter of the spots reserved within the hold period from now, or null without reservations.
+     */
+    private IntPredicate heldSpots(){
+        ReservationDAO reservations = reservationDAO;
+        return reservations == null ? null : reservations.heldSpots(System.currentTimeMillis());
+    }
+
+    /**
+     * Reuses a spot freed earlier in the current unit of work. Such a spot only reaches the
+     * free spot index once the unit of work commits, so other gates never see it early.
+     */
+    private ParkingSpot claimFreedSpot(int lotNumber, ParkingType parkingType, IntPredicate heldSpots){
+        FreedSpots freedSpots = UnitOfWork.resource(this, () -> null);
+        if(freedSpots == null){
+            return null;
+        }
+        ParkingSpot parkingSpot = freedSpots.removeLowest(lotNumber, parkingType, heldSpots);
+        if(parkingSpot == null){
+            return null;
+        }
+        int parkingNumber = parkingSpot.getId();
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)) {
+
+            ps.setInt(1, parkingNumber);
+            if(ps.executeUpdate() == 1){
+                parkingSpot.setAvailable(false);
+                return parkingSpot;
+            }
+        }catch (SQLException ex){
+            logger.error("Error claiming parking spot " + parkingNumber, ex);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        return null;
+    }
+
+    private FreedSpots newFreedSpots(){
+        FreedSpots freedSpots = new FreedSpots();
+        UnitOfWork.afterCommit(() -> freedSpots.publish(freeSpotIndex));
+        return freedSpots;
+    }
+
+    /**
+     * Spots freed by the current unit of work and not claimed again by it.
+     */
+    private static final class FreedSpots {
+        private final List<ParkingSpot> parkingSpots = new ArrayList<>();
+
+        private void add(ParkingSpot parkingSpot){
+            parkingSpots.add(parkingSpot);
+        }
+
+        private ParkingSpot removeLowest(int lotNumber, ParkingType parkingType, IntPredicate excluded){
+            int lowest = -1;
+            for(int i = 0; i < parkingSpots.size(); i++){
+                ParkingSpot parkingSpot = parkingSpots.get(i);
+                if(parkingSpot.getLotNumber() == lotNumber && parkingSpot.getParkingType() == parkingType
+                        && (excluded == null || !excluded.test(parkingSpot.getId()))
+                        && (lowest < 0 || parkingSpot.getId() < parkingSpots.get(lowest).getId())){
+                    lowest = i;
+                }
+            }
+            return lowest < 0 ? null : parkingSpots.remove(lowest);
+        }
+
+        private boolean remove(int parkingNumber){
+            return parkingSpots.removeIf(parkingSpot -> parkingSpot.getId() == parkingNumber);
+        }
+
+        private void publish(FreeSpotIndex freeSpotIndex){
+            for(ParkingSpot parkingSpot : parkingSpots){
+                freeSpotIndex.markAvailable(parkingSpot.getId(), true);
+            }
+        }
     }
 
     public boolean updateParking(ParkingSpot parkingSpot){
@@ -45,6 +287,19 @@ public class ParkingSpotDAO {
             ps.setInt(2, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
 
+            if(updateRowCount == 1){
+                int parkingNumber = parkingSpot.getId();
+                boolean available = parkingSpot.isAvailable();
+                FreedSpots freedSpots = available ? UnitOfWork.resource(this, this::newFreedSpots) : null;
+                if(freedSpots != null){
+                    // A spot read back from a ticket has no lot, the index knows it
+                    int lotNumber = freeSpotIndex.lotOf(parkingNumber);
+                    freedSpots.add(new ParkingSpot(parkingNumber, parkingSpot.getParkingType(), true,
+                            lotNumber > 0 ? lotNumber : parkingSpot.getLotNumber(), freeSpotIndex.levelOf(parkingNumber)));
+                } else {
+                    UnitOfWork.afterCommit(() -> freeSpotIndex.markAvailable(parkingNumber, available));
+                }
+            }
             return (updateRowCount == 1);
         }catch (SQLException ex){
             logger.error("Error updating parking info",ex);
@@ -54,4 +309,56 @@ public class ParkingSpotDAO {
         }
     }
 
+    /**
+     * Reloads the free spot index from the parking table and returns the number of spots
+     * whose in-memory availability had drifted from the database.
+     */
+    public int reconcileFreeSpotIndex() throws SQLException {
+        int drift = freeSpotIndex.reset(getParkingSpots());
+        if(drift > 0){
+            logger.warn("Repaired " + drift + " parking spot(s) out of sync with the database");
+        }
+        return drift;
+    }
+
+    public List<ParkingSpot> getParkingSpots() throws SQLException {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+            ResultSet rs = ps.executeQuery()) {
+            while(rs.next()){
+                parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)), rs.getBoolean(2),
+                        rs.getInt(4), rs.getInt(5)));
+            }
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        return parkingSpots;
+    }
+
+    public FreeSpotIndex getFreeSpotIndex() {
+        return freeSpotIndex;
+    }
+
+    /**
+     * Returns the free and occupied spot counts, loading the free spot index on first use.
+     */
+    public OccupancyTracker getOccupancyTracker() {
+        isFreeSpotIndexReady();
+        return freeSpotIndex.getOccupancyTracker();
+    }
+
+    private boolean isFreeSpotIndexReady() {
+        if(freeSpotIndex.isLoaded()){
+            return true;
+        }
+        try {
+            reconcileFreeSpotIndex();
+            return true;
+        } catch (SQLException ex) {
+            logger.error("Error loading free parking spots, falling back to database lookups", ex);
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,277 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Spots booked ahead of arrival. Reservations are saved in the reservation table and answered
+ * from a {@link ReservationIndex}, loaded on first use. Walk-in vehicles are kept away from the
+ * spots reserved within the hold period ahead of their arrival, see {@link #isHeld(int, long)}.
+ */
+public class ReservationDAO {
+    private static final Logger logger = LogManager.getLogger("ReservationDAO");
+
+    public static final long DEFAULT_HOLD_MILLIS = 2 * 60 * 60 * 1000;
+    // A vehicle arriving this early is already given its reserved spot
+    public static final long EARLY_ARRIVAL_MILLIS = 15 * 60 * 1000;
+    private static final long PRUNE_PERIOD_MILLIS = 60 * 1000;
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final long holdMillis;
+    private final ReservationIndex reservationIndex = new ReservationIndex();
+    private long lastPrune;
+
+    public ReservationDAO(ParkingSpotDAO parkingSpotDAO) {
+        this(parkingSpotDAO, DEFAULT_HOLD_MILLIS);
+    }
+
+    public ReservationDAO(ParkingSpotDAO parkingSpotDAO, long holdMillis) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.holdMillis = holdMillis;
+    }
+
+    public void registerMetrics(MetricsRegistry registry){
+        registry.gauge("reservations", reservationIndex::size);
+    }
+
+    /**
+     * Books the lowest spot of the lowest level of the lot, of the given type, free for the
+     * whole window [startTime, endTime). Returns the reservation, or null when no spot is free
+     * for the window, the vehicle already holds a reservation overlapping it or on database
+     * errors. A window starting within the hold period only gets a spot free right now, as
+     * walk-ins already parked there may not leave in time.
+     */
+    public synchronized Reservation reserve(int lotNumber, ParkingType parkingType, String vehicleRegNumber,
+                                            Date startTime, Date endTime){
+        long from = startTime.getTime();
+        long to = endTime.getTime();
+        long now = System.currentTimeMillis();
+        if(to <= from || to <= now){
+            throw new IllegalArgumentException("Reservation window from " + startTime + " to " + endTime + " is empty or past");
+        }
+        if(!isReservationIndexReady()){
+            return null;
+        }
+        if(now - lastPrune >= PRUNE_PERIOD_MILLIS){
+            reservationIndex.removeEnded(now);
+            lastPrune = now;
+        }
+        if(reservationIndex.getReservation(vehicleRegNumber, from, to) != null){
+            logger.info("Vehicle " + vehicleRegNumber + " already holds a reservation from " + startTime + " to " + endTime);
+            return null;
+        }
+
+        boolean startsSoon = from < now + holdMillis;
+        Set<Integer> taken = new HashSet<>();
+        IntPredicate usable = parkingNumber -> !taken.contains(parkingNumber)
+                && (!startsSoon || parkingSpotDAO.isSpotFree(parkingNumber));
+        while(true){
+            int parkingNumber = reservationIndex.findFreeSpot(lotNumber, parkingType, from, to, usable);
+            if(parkingNumber <= 0){
+                return null;
+            }
+            ParkingSpot parkingSpot = reservationIndex.getParkingSpot(parkingNumber);
+            Reservation reservation = new Reservation();
+            reservation.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, true,
+                    parkingSpot.getLotNumber(), parkingSpot.getLevelNumber()));
+            reservation.setVehicleRegNumber(vehicleRegNumber);
+            reservation.setStartTime(startTime);
+            reservation.setEndTime(endTime);
+            if(!saveReservation(reservation)){
+                return null;
+            }
+            reservationIndex.add(reservation);
+            // Published before the check: a gate claiming the spot now either sees it held or is seen here
+            if(startsSoon && !parkingSpotDAO.isSpotFree(parkingNumber)){
+                reservationIndex.remove(reservation);
+                deleteReservation(reservation.getId());
+                taken.add(parkingNumber);
+                continue;
+            }
+            return reservation;
+        }
+    }
+
+    /**
+     * Returns true when a spot of the given type is free for the whole window in the lot.
+     */
+    public boolean isAvailable(int lotNumber, ParkingType parkingType, Date startTime, Date endTime){
+        long from = startTime.getTime();
+        boolean startsSoon = from < System.currentTimeMillis() + holdMillis;
+        return isReservationIndexReady() && reservationIndex.findFreeSpot(lotNumber, parkingType, from, endTime.getTime(),
+                parkingNumber -> !startsSoon || parkingSpotDAO.isSpotFree(parkingNumber)) > 0;
+    }
+
+    /**
+     * Returns true when the spot is reserved at some time in the hold period starting at the
+     * given time, in which case walk-ins must not take it.
+     */
+    public boolean isHeld(int parkingNumber, long time){
+        return heldSpots(time).test(parkingNumber);
+    }
+
+    /**
+     * Filter of the spots held at the given time, see {@link #isHeld(int, long)}, loading the
+     * index once for all the spots tested. When it cannot be loaded every spot is held, so a
+     * walk-in never takes a reserved spot.
+     */
+    public IntPredicate heldSpots(long time){
+        if(!isReservationIndexReady()){
+            return parkingNumber -> true;
+        }
+        return parkingNumber -> reservationIndex.isReserved(parkingNumber, time, time + holdMillis);
+    }
+
+    /**
+     * Returns the reservation in the lot of a vehicle arriving at the given time, or null.
+     */
+    public Reservation getReservation(String vehicleRegNumber, int lotNumber, Date arrivalTime){
+        if(!isReservationIndexReady()){
+            return null;
+        }
+        long time = arrivalTime.getTime();
+        Reservation reservation = reservationIndex.getReservation(vehicleRegNumber, time, time + EARLY_ARRIVAL_MILLIS);
+        return reservation != null && reservation.getParkingSpot().getLotNumber() == lotNumber ? reservation : null;
+    }
+
+    /**
+     * Deletes the reservation of a vehicle that has arrived, in the current unit of work. Its
+     * spot is released in the index once the unit of work commits.
+     */
+    public boolean useReservation(Reservation reservation){
+        if(!deleteReservation(reservation.getId())){
+            return false;
+        }
+        UnitOfWork.afterCommit(() -> reservationIndex.remove(reservation));
+        return true;
+    }
+
+    /**
+     * Cancels a reservation and returns false when there is no such reservation.
+     */
+    public synchronized boolean cancelReservation(int id){
+        if(!isReservationIndexReady()){
+            return false;
+        }
+        Reservation reservation = reservationIndex.getReservation(id);
+        if(reservation == null || !deleteReservation(id)){
+            return false;
+        }
+        reservationIndex.remove(reservation);
+        return true;
+    }
+
+    private boolean saveReservation(Reservation reservation){
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_RESERVATION, Statement.RETURN_GENERATED_KEYS)) {
+
+            ps.setInt(1, reservation.getParkingSpot().getId());
+            ps.setString(2, reservation.getVehicleRegNumber());
+            ps.setTimestamp(3, new Timestamp(reservation.getStartTime().getTime()));
+            ps.setTimestamp(4, new Timestamp(reservation.getEndTime().getTime()));
+            if(ps.executeUpdate() == 1){
+                try(ResultSet keys = ps.getGeneratedKeys()) {
+                    if(keys.next()){
+                        reservation.setId(keys.getInt(1));
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }catch (SQLException ex){
+            logger.error("Error saving reservation of vehicle " + reservation.getVehicleRegNumber(), ex);
+            return false;
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean deleteReservation(int id){
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_RESERVATION)) {
+
+            ps.setInt(1, id);
+            return ps.executeUpdate() == 1;
+        }catch (SQLException ex){
+            logger.error("Error deleting reservation " + id, ex);
+            return false;
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reloads the reservation index with the spots and the reservations not ended yet.
+     */
+    public void loadReservationIndex() throws SQLException {
+        List<ParkingSpot> parkingSpots = parkingSpotDAO.getParkingSpots();
+        Map<Integer, ParkingSpot> spotsByNumber = new HashMap<>();
+        for(ParkingSpot parkingSpot : parkingSpots){
+            spotsByNumber.put(parkingSpot.getId(), parkingSpot);
+        }
+        List<Reservation> reservations = new ArrayList<>();
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_RESERVATIONS)) {
+
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            try(ResultSet rs = ps.executeQuery()) {
+                while(rs.next()){
+                    Reservation reservation = new Reservation();
+                    reservation.setId(rs.getInt(1));
+                    reservation.setVehicleRegNumber(rs.getString(3));
+                    reservation.setStartTime(new Date(rs.getTimestamp(4).getTime()));
+                    reservation.setEndTime(new Date(rs.getTimestamp(5).getTime()));
+                    reservation.setParkingSpot(spotsByNumber.get(rs.getInt(2)));
+                    if(reservation.getParkingSpot() != null){
+                        reservations.add(reservation);
+                    }
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        reservationIndex.reset(parkingSpots, reservations);
+        logger.info("Loaded " + reservations.size() + " reservation(s)");
+    }
+
+    public ReservationIndex getReservationIndex() {
+        return reservationIndex;
+    }
+
+    private boolean isReservationIndexReady() {
+        if(reservationIndex.isLoaded()){
+            return true;
+        }
+        try {
+            loadReservationIndex();
+            return true;
+        } catch (SQLException ex) {
+            logger.error("Error loading reservations", ex);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory copy of the reservation table, for the reservations not ended yet. Each spot keeps
+ * its reservations in a skip list sorted by start time and, as they never overlap, the one
+ * starting last before the end of a time window is the only one that can overlap it: whether a
+ * spot is free for a window takes a single O(log n) lookup. Finding a free spot of a lot and
+ * type walks its spots, lowest level first, with one such lookup each. The reservations of a
+ * vehicle are kept the same way. Gates read the index without locking; writers are serialized.
+ */
+public class ReservationIndex {
+
+    private static final int PARKING_TYPES = ParkingType.values().length;
+
+    private static final Comparator<ParkingSpot> BY_LEVEL_AND_NUMBER =
+            Comparator.comparingInt(ParkingSpot::getLevelNumber).thenComparingInt(ParkingSpot::getId);
+
+    private static final int[] NO_SPOTS = new int[0];
+
+    private static final class Spots {
+        // By lot, then by type ordinal, lowest level first
+        private final Map<Integer, int[][]> lots;
+        private final Map<Integer, ParkingSpot> parkingSpots;
+
+        private Spots(Map<Integer, int[][]> lots, Map<Integer, ParkingSpot> parkingSpots) {
+            this.lots = lots;
+            this.parkingSpots = parkingSpots;
+        }
+    }
+
+    private volatile Spots spots = new Spots(Collections.emptyMap(), Collections.emptyMap());
+    private volatile boolean loaded;
+
+    private final ConcurrentMap<Integer, ConcurrentSkipListMap<Long, Reservation>> spotReservations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Long, Reservation>> vehicleReservations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Reservation> reservations = new ConcurrentHashMap<>();
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replaces the spots and the reservations of the index.
+     */
+    public synchronized void reset(Collection<ParkingSpot> parkingSpots, Collection<Reservation> newReservations) {
+        Map<Integer, List<List<ParkingSpot>>> spotsByTypeByLot = new HashMap<>();
+        Map<Integer, ParkingSpot> spotsByNumber = new HashMap<>();
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            if (parkingSpot.getId() <= 0) {
+                continue;
+            }
+            List<List<ParkingSpot>> spotsByType = spotsByTypeByLot.computeIfAbsent(parkingSpot.getLotNumber(), lot -> {
+                List<List<ParkingSpot>> types = new ArrayList<>();
+                for (int i = 0; i < PARKING_TYPES; i++) {
+                    types.add(new ArrayList<>());
+                }
+                return types;
+            });
+            spotsByType.get(parkingSpot.getParkingType().ordinal()).add(parkingSpot);
+            spotsByNumber.put(parkingSpot.getId(), parkingSpot);
+        }
+        Map<Integer, int[][]> lots = new HashMap<>();
+        for (Map.Entry<Integer, List<List<ParkingSpot>>> lotEntry : spotsByTypeByLot.entrySet()) {
+            int[][] spotsByType = new int[PARKING_TYPES][];
+            for (int i = 0; i < PARKING_TYPES; i++) {
+                List<ParkingSpot> typeSpots = lotEntry.getValue().get(i);
+                typeSpots.sort(BY_LEVEL_AND_NUMBER);
+                spotsByType[i] = typeSpots.stream().mapToInt(ParkingSpot::getId).toArray();
+            }
+            lots.put(lotEntry.getKey(), spotsByType);
+        }
+
+        spotReservations.clear();
+        vehicleReservations.clear();
+        reservations.clear();
+        spots = new Spots(lots, spotsByNumber);
+        for (Reservation reservation : newReservations) {
+            add(reservation);
+        }
+        loaded = true;
+    }
+
+    /**
+     * Returns the spot of the given number, or null when it is not in the index.
+     */
+    public ParkingSpot getParkingSpot(int parkingNumber) {
+        return spots.parkingSpots.get(parkingNumber);
+    }
+
+    /**
+     * Returns true when a reservation of the spot overlaps the window [from, to).
+     */
+    public boolean isReserved(int parkingNumber, long from, long to) {
+        return overlapping(spotReservations.get(parkingNumber), from, to) != null;
+    }
+
+    /**
+     * Returns the lowest spot of the lowest level of the lot, of the given type, reserved at no
+     * time in [from, to) and accepted by the filter, or 0 when there is none.
+     */
+    public int findFreeSpot(int lotNumber, ParkingType parkingType, long from, long to, IntPredicate filter) {
+        int[][] spotsByType = spots.lots.get(lotNumber);
+        int[] typeSpots = spotsByType == null ? NO_SPOTS : spotsByType[parkingType.ordinal()];
+        for (int parkingNumber : typeSpots) {
+            if (!isReserved(parkingNumber, from, to) && filter.test(parkingNumber)) {
+                return parkingNumber;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the reservation of the vehicle overlapping the window [from, to), or null.
+     */
+    public Reservation getReservation(String vehicleRegNumber, long from, long to) {
+        return overlapping(vehicleReservations.get(vehicleRegNumber), from, to);
+    }
+
+    public Reservation getReservation(int id) {
+        return reservations.get(id);
+    }
+
+    /**
+     * Adds a reservation, which must not overlap another one of its spot or of its vehicle.
+     */
+    public synchronized void add(Reservation reservation) {
+        long startTime = reservation.getStartTime().getTime();
+        spotReservations.computeIfAbsent(reservation.getParkingSpot().getId(), n -> new ConcurrentSkipListMap<>())
+                .put(startTime, reservation);
+        vehicleReservations.computeIfAbsent(reservation.getVehicleRegNumber(), v -> new ConcurrentSkipListMap<>())
+                .put(startTime, reservation);
+        reservations.put(reservation.getId(), reservation);
+    }
+
+    /**
+     * Removes a reservation and returns true if it was in the index.
+     */
+    public synchronized boolean remove(Reservation reservation) {
+        if (!reservations.remove(reservation.getId(), reservation)) {
+            return false;
+        }
+        long startTime = reservation.getStartTime().getTime();
+        remove(spotReservations, reservation.getParkingSpot().getId(), startTime, reservation);
+        remove(vehicleReservations, reservation.getVehicleRegNumber(), startTime, reservation);
+        return true;
+    }
+
+    /**
+     * Drops the reservations ended at the given time and returns their number.
+     */
+    public synchronized int removeEnded(long time) {
+        int removed = 0;
+        for (Iterator<Reservation> it = reservations.values().iterator(); it.hasNext(); ) {
+            Reservation reservation = it.next();
+            if (reservation.getEndTime().getTime() <= time) {
+                it.remove();
+                long startTime = reservation.getStartTime().getTime();
+                remove(spotReservations, reservation.getParkingSpot().getId(), startTime, reservation);
+                remove(vehicleReservations, reservation.getVehicleRegNumber(), startTime, reservation);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return reservations.size();
+    }
+
+    private static Reservation overlapping(ConcurrentSkipListMap<Long, Reservation> slots, long from, long to) {
+        if (slots == null) {
+            return null;
+        }
+        Map.Entry<Long, Reservation> entry = slots.lowerEntry(to);
+        return entry != null && entry.getValue().getEndTime().getTime() > from ? entry.getValue() : null;
+    }
+
+    private static <K> void remove(ConcurrentMap<K, ConcurrentSkipListMap<Long, Reservation>> slotsByKey, K key,
+                                   long startTime, Reservation reservation) {
+        ConcurrentSkipListMap<Long, Reservation> slots = slotsByKey.get(key);
+        if (slots != null) {
+            slots.remove(startTime, reservation);
+            if (slots.isEmpty()) {
+                slotsByKey.remove(key, slots);
+            }
+        }
+    }
+}
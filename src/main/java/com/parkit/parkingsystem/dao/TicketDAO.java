@@ -1,24 +1,73 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseSettings;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class TicketDAO {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    private static final int VISIT_COUNT_CACHE_SIZE = 10000;
+    private static final long VISIT_COUNT_CACHE_TTL_MILLIS = 3600000;
+    private static final int OPEN_TICKET_CACHE_EXPECTED_SIZE = 1024;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    private final VisitCountCache visitCountCache = new VisitCountCache(VISIT_COUNT_CACHE_SIZE, VISIT_COUNT_CACHE_TTL_MILLIS);
+    private final OpenTicketCache openTicketCache = new OpenTicketCache(OPEN_TICKET_CACHE_EXPECTED_SIZE);
+
+    // Null unless ticket writes go through a write-behind journal
+    private TicketJournal ticketJournal;
+
+    /**
+     * Sends ticket writes to the journal, which writes them to the database in the
+     * background, or back to the database directly when null.
+     */
+    public void setTicketJournal(TicketJournal ticketJournal) {
+        this.ticketJournal = ticketJournal;
+    }
+
+    public TicketJournal getTicketJournal() {
+        return ticketJournal;
+    }
+
+    /**
+     * Publishes the hit rates of the visit count and open ticket caches.
+     */
+    public void registerMetrics(MetricsRegistry registry){
+        registry.gauge("cache_hit_ratio", visitCountCache::getHitRate, "cache", "visit_count");
+        registry.gauge("cache_hit_ratio", openTicketCache::getHitRate, "cache", "open_ticket");
+        registry.gauge("cache_size", visitCountCache::size, "cache", "visit_count");
+        registry.gauge("cache_size", openTicketCache::size, "cache", "open_ticket");
+    }
+
     public boolean saveTicket(Ticket ticket){
+        // Until the unit of work commits, the new ticket is only visible through the database
+        openTicketCache.remove(ticket.getVehicleRegNumber());
+        if(ticketJournal != null){
+            if(!ticketJournal.save(ticket)){
+                return false;
+            }
+            afterTicketSaved(ticket);
+            return true;
+        }
         try (Connection con = dataBaseConfig.getConnection();
-             PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+             PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)) {
             //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
             //ps.setInt(1,ticket.getId());
             ps.setInt(1,ticket.getParkingSpot().getId());
@@ -26,7 +75,15 @@ public class TicketDAO {
             ps.setDouble(3, ticket.getPrice());
             ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
             ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            if(ps.executeUpdate() == 1){
+                ResultSet keys = ps.getGeneratedKeys();
+                if(keys.next()){
+                    ticket.setId(keys.getInt(1));
+                }
+                afterTicketSaved(ticket);
+                return true;
+            }
+            return false;
         }catch (SQLException ex){
             logger.error("Error fetching next available slot",ex);
         } catch (ClassNotFoundException e) {
@@ -36,7 +93,41 @@ public class TicketDAO {
         return false;
     }
 
+    private void afterTicketSaved(Ticket ticket) {
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        Ticket openTicket = copyOf(ticket);
+        UnitOfWork.afterCommit(() -> {
+            visitCountCache.increment(vehicleRegNumber);
+            openTicketCache.put(openTicket);
+        });
+    }
+
+    private static Ticket copyOf(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        copy.setParkingSpot(ticket.getParkingSpot());
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        return copy;
+    }
+
+    /**
+     * Returns the latest ticket of the vehicle. The open ticket of a parked vehicle comes
+     * from memory; the database is only read for vehicles that are not parked.
+     */
     public Ticket getTicket(String vehicleRegNumber) {
+        if(ticketJournal != null){
+            Ticket pendingTicket = ticketJournal.getPendingTicket(vehicleRegNumber);
+            if(pendingTicket != null){
+                return pendingTicket;
+            }
+        }
+        Ticket openTicket = openTicketCache.get(vehicleRegNumber);
+        if(openTicket != null){
+            return openTicket;
+        }
         Ticket ticket = null;
         try(Connection con = dataBaseConfig.getConnection();
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET)) {
@@ -62,30 +153,330 @@ public class TicketDAO {
         return ticket;
     }
 
-    public boolean updateTicket(Ticket ticket) {
+    /**
+     * Closes an open ticket with its price and out time. Returns 1 when closed, 0 when the
+     * ticket was already closed, by a concurrent exit of the same vehicle, and -1 on errors.
+     */
+    public int updateTicket(Ticket ticket) {
+        // Evicted right away rather than after commit, so the rest of the unit of work reads
+        // the updated ticket from the database; a rollback only costs a database read later
+        openTicketCache.remove(ticket.getVehicleRegNumber());
+        if(ticketJournal != null){
+            return ticketJournal.update(ticket);
+        }
         try (Connection con = dataBaseConfig.getConnection();
              PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET)) {
             ps.setDouble(1, ticket.getPrice());
             ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
             ps.setInt(3,ticket.getId());
-            ps.execute();
-            return true;
+            return ps.executeUpdate();
         }catch (SQLException ex){
             logger.error("Error saving ticket info",ex);
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
         }
 
+        return -1;
+    }
+
+    /**
+     * Fills the batch with the next closed tickets after the given id whose out time falls in
+     * [from, to), in id order. A ticket is recurring when its vehicle had already been seen
+     * when it entered, which is the rule applied at the exit gate.
+     */
+    public boolean getClosedTickets(int afterId, Date from, Date to, ClosedTicketBatch batch) {
+        batch.clear();
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKETS)) {
+            ps.setInt(1, afterId);
+            ps.setTimestamp(2, new Timestamp(from.getTime()));
+            ps.setTimestamp(3, new Timestamp(to.getTime()));
+            ps.setInt(4, batch.capacity());
+            ps.setFetchSize(batch.capacity());
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                batch.add(rs.getInt(1), ParkingType.valueOf(rs.getString(2)),
+                        rs.getTimestamp(3).getTime(), rs.getTimestamp(4).getTime(),
+                        rs.getInt(6) > 1, Math.round(rs.getDouble(5) * 100));
+            }
+            return true;
+        }catch (SQLException ex){
+            logger.error("Error fetching closed tickets",ex);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Receives the tickets streamed by {@link #streamTickets}. The out time is -1 for a
+     * vehicle still parked.
+     */
+    @FunctionalInterface
+    public interface TicketConsumer {
+        void accept(ParkingType parkingType, long inTime, long outTime, long priceInCents, boolean recurring);
+    }
+
+    /**
+     * Receives the closed tickets streamed by {@link #streamClosedTickets}.
+     */
+    @FunctionalInterface
+    public interface ClosedTicketConsumer {
+        void accept(int parkingNumber, String vehicleRegNumber, ParkingType parkingType, long inTime, long outTime,
+                    long priceInCents);
+    }
+
+    /**
+     * Streams to the consumer, in entry order, the tickets of the vehicles parked at from and
+     * then the tickets entered in [from, to), archived or not. Rows are read through
+     * forward-only cursors fetching fetchSize rows at a time, or one by one on MySQL whose
+     * driver would otherwise load the whole result, so memory does not grow with the number
+     * of tickets read. Tickets and archived tickets entered in the period are read on two
+     * connections and merged on their in time.
+     */
+    public boolean streamTickets(Date from, Date to, int fetchSize, TicketConsumer consumer) {
+        Timestamp fromTimestamp = new Timestamp(from.getTime());
+        Timestamp toTimestamp = new Timestamp(to.getTime());
+        int streamingFetchSize = dataBaseConfig.getSettings().getBackend() == DataBaseSettings.Backend.MYSQL
+                ? Integer.MIN_VALUE : fetchSize;
+        try(Connection con = dataBaseConfig.getConnection();
+            Connection archiveCon = dataBaseConfig.getConnection()) {
+            try(TicketCursor parked = new TicketCursor(con, DBConstants.GET_TICKETS_PARKED_AT, false, streamingFetchSize,
+                    fromTimestamp, fromTimestamp, fromTimestamp, fromTimestamp)) {
+                while(parked.next()){
+                    parked.sendTo(consumer);
+                }
+            }
+            try(TicketCursor tickets = new TicketCursor(con, DBConstants.GET_TICKETS_ENTERED_BETWEEN, false,
+                    streamingFetchSize, fromTimestamp, toTimestamp);
+                TicketCursor archivedTickets = new TicketCursor(archiveCon, DBConstants.GET_ARCHIVED_TICKETS_ENTERED_BETWEEN,
+                        false, streamingFetchSize, fromTimestamp, toTimestamp)) {
+                mergeByInTime(tickets, archivedTickets, cursor -> cursor.sendTo(consumer));
+            }
+            return true;
+        }catch (SQLException ex){
+            logger.error("Error streaming tickets",ex);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Streams to the consumer, in entry order, the closed tickets entered in [from, to),
+     * archived or not, through forward-only cursors as streamTickets does.
+     */
+    public boolean streamClosedTickets(Date from, Date to, int fetchSize, ClosedTicketConsumer consumer) {
+        Timestamp fromTimestamp = new Timestamp(from.getTime());
+        Timestamp toTimestamp = new Timestamp(to.getTime());
+        int streamingFetchSize = dataBaseConfig.getSettings().getBackend() == DataBaseSettings.Backend.MYSQL
+                ? Integer.MIN_VALUE : fetchSize;
+        try(Connection con = dataBaseConfig.getConnection();
+            Connection archiveCon = dataBaseConfig.getConnection();
+            TicketCursor tickets = new TicketCursor(con, DBConstants.GET_EXPORTED_TICKETS, true, streamingFetchSize,
+                    fromTimestamp, toTimestamp);
+            TicketCursor archivedTickets = new TicketCursor(archiveCon, DBConstants.GET_EXPORTED_ARCHIVED_TICKETS, true,
+                    streamingFetchSize, fromTimestamp, toTimestamp)) {
+            mergeByInTime(tickets, archivedTickets, cursor -> consumer.accept(cursor.parkingNumber,
+                    cursor.vehicleRegNumber, cursor.parkingType, cursor.inTime, cursor.outTime, cursor.priceInCents));
+            return true;
+        }catch (SQLException ex){
+            logger.error("Error streaming closed tickets",ex);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        return false;
+    }
+
+    private static void mergeByInTime(TicketCursor first, TicketCursor second, Consumer<TicketCursor> consumer)
+            throws SQLException {
+        boolean hasFirst = first.next();
+        boolean hasSecond = second.next();
+        while(hasFirst || hasSecond){
+            if(hasFirst && (!hasSecond || first.inTime <= second.inTime)){
+                consumer.accept(first);
+                hasFirst = first.next();
+            } else {
+                consumer.accept(second);
+                hasSecond = second.next();
+            }
+        }
+    }
+
+    /**
+     * A forward-only result of (TYPE, IN_TIME, OUT_TIME, PRICE, RECURRING) rows, or of
+     * (TYPE, IN_TIME, OUT_TIME, PRICE, PARKING_NUMBER, VEHICLE_REG_NUMBER) rows for exports,
+     * with the current row read into fields.
+     */
+    private static final class TicketCursor implements AutoCloseable {
+        private final PreparedStatement ps;
+        private final ResultSet rs;
+        private final boolean exportRows;
+        private ParkingType parkingType;
+        private long inTime;
+        private long outTime;
+        private long priceInCents;
+        private boolean recurring;
+        private int parkingNumber;
+        private String vehicleRegNumber;
+
+        private TicketCursor(Connection con, String sql, boolean exportRows, int fetchSize, Timestamp... parameters)
+                throws SQLException {
+            this.exportRows = exportRows;
+            ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            try {
+                for(int i = 0; i < parameters.length; i++){
+                    ps.setTimestamp(i + 1, parameters[i]);
+                }
+                ps.setFetchSize(fetchSize);
+                rs = ps.executeQuery();
+            } catch (SQLException e) {
+                ps.close();
+                throw e;
+            }
+        }
+
+        private boolean next() throws SQLException {
+            if(!rs.next()){
+                return false;
+            }
+            parkingType = ParkingType.valueOf(rs.getString(1));
+            inTime = rs.getTimestamp(2).getTime();
+            Timestamp out = rs.getTimestamp(3);
+            outTime = out == null ? -1 : out.getTime();
+            priceInCents = Math.round(rs.getDouble(4) * 100);
+            if(exportRows){
+                parkingNumber = rs.getInt(5);
+                vehicleRegNumber = rs.getString(6);
+            } else {
+                recurring = rs.getBoolean(5);
+            }
+            return true;
+        }
+
+        private void sendTo(TicketConsumer consumer) {
+            consumer.accept(parkingType, inTime, outTime, priceInCents, recurring);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                rs.close();
+            } finally {
+                ps.close();
+            }
+        }
+    }
+
+    /**
+     * Moves up to batchSize tickets closed before the given time to the archive table and
+     * adds them to the archived visit counts of their vehicles, so the visit counts read by
+     * getNbTicket do not change. Returns the number of tickets moved, or -1 when the move
+     * failed and the caller has to roll back its unit of work.
+     */
+    public int archiveClosedTickets(Date before, int batchSize) {
+        try(Connection con = dataBaseConfig.getConnection()) {
+            int[] ids = new int[batchSize];
+            Map<String, Integer> visitsByVehicle = new HashMap<>();
+            int count = 0;
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_ARCHIVABLE_TICKETS)) {
+                ps.setTimestamp(1, new Timestamp(before.getTime()));
+                ps.setInt(2, batchSize);
+                try(ResultSet rs = ps.executeQuery()) {
+                    while(rs.next()){
+                        ids[count++] = rs.getInt(1);
+                        visitsByVehicle.merge(rs.getString(2), 1, Integer::sum);
+                    }
+                }
+            }
+            if(count == 0){
+                return 0;
+            }
+            try(PreparedStatement archive = con.prepareStatement(DBConstants.ARCHIVE_TICKET);
+                PreparedStatement delete = con.prepareStatement(DBConstants.DELETE_TICKET)) {
+                for(int i = 0; i < count; i++){
+                    archive.setInt(1, ids[i]);
+                    archive.addBatch();
+                    delete.setInt(1, ids[i]);
+                    delete.addBatch();
+                }
+                archive.executeBatch();
+                delete.executeBatch();
+            }
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.ADD_ARCHIVED_VISITS)) {
+                for(Map.Entry<String, Integer> visits : visitsByVehicle.entrySet()){
+                    ps.setString(1, visits.getKey());
+                    ps.setInt(2, visits.getValue());
+                    ps.setInt(3, visits.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return count;
+        }catch (SQLException ex){
+            logger.error("Error archiving closed tickets",ex);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Writes new prices with a single JDBC batch. Returns false when the batch failed, so the
+     * caller can roll back its unit of work.
+     */
+    public boolean updateTicketPrices(int[] ids, long[] pricesInCents, int count) {
+        if (count == 0) {
+            return true;
+        }
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET_PRICE)) {
+            for (int i = 0; i < count; i++) {
+                ps.setDouble(1, pricesInCents[i] / 100.0);
+                ps.setInt(2, ids[i]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            return true;
+        }catch (SQLException ex){
+            logger.error("Error saving ticket prices",ex);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
         return false;
     }
 
     public int getNbTicket(String vehicleRegNumber) {
+        Integer cachedNbrTicket = visitCountCache.get(vehicleRegNumber);
+        if(cachedNbrTicket != null){
+            return cachedNbrTicket;
+        }
+
+        if(ticketJournal != null){
+            int nbrTicket = ticketJournal.countTickets(vehicleRegNumber, this::countTicketsInDataBase);
+            UnitOfWork.afterCommit(() -> visitCountCache.load(vehicleRegNumber, nbrTicket));
+            return nbrTicket;
+        }
+        int nbrTicket = countTicketsInDataBase(vehicleRegNumber);
+        // Registered after any pending increment of this transaction, so a count that
+        // already includes an uncommitted ticket is not incremented twice
+        UnitOfWork.afterCommit(() -> visitCountCache.load(vehicleRegNumber, nbrTicket));
+        return nbrTicket;
+    }
+
+    private int countTicketsInDataBase(String vehicleRegNumber) {
         int nbrTicket = 0;
 
         try(Connection con = dataBaseConfig.getConnection();
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_NB_TICKET)) {
 
             ps.setString(1,vehicleRegNumber);
+            ps.setString(2,vehicleRegNumber);
             ResultSet rs = ps.executeQuery();
             rs.next();
             nbrTicket = rs.getInt("NB_TICKET");
@@ -97,4 +488,63 @@ public class TicketDAO {
 
         return nbrTicket;
     }
+
+    /**
+     * Loads the visit counts of the most recently seen vehicles into the cache.
+     */
+    public int warmVisitCountCache(int maxVehicles) {
+        int loaded = 0;
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_RECENT_NB_TICKETS)) {
+
+            ps.setInt(1, Math.min(maxVehicles, VISIT_COUNT_CACHE_SIZE));
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                visitCountCache.load(rs.getString(1), rs.getInt(2));
+                loaded++;
+            }
+        }catch (SQLException ex){
+            logger.error("Error warming visit count cache",ex);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Loads the open tickets into the cache, keeping the latest one of each vehicle.
+     */
+    public int loadOpenTicketCache() {
+        int loaded = 0;
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS)) {
+
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false));
+                ticket.setId(rs.getInt(2));
+                ticket.setPrice(rs.getDouble(3));
+                ticket.setInTime(rs.getTimestamp(4));
+                ticket.setVehicleRegNumber(rs.getString(5));
+                openTicketCache.put(ticket);
+                loaded++;
+            }
+        }catch (SQLException ex){
+            logger.error("Error loading open tickets",ex);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        return loaded;
+    }
+
+    public OpenTicketCache getOpenTicketCache() {
+        return openTicketCache;
+    }
+
+    public VisitCountCache getVisitCountCache() {
+        return visitCountCache;
+    }
 }
@@ -0,0 +1,735 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind log of ticket writes. Saves and updates are appended to a local append-only
+ * file and forced to disk, then a background flusher inserts them into the database by
+ * batches. Until a record is flushed, TicketDAO reads the ticket from the journal.
+ * <p>
+ * Each record is framed as [int length][long sequence, byte type, fields][int crc32]. The
+ * sequence of the last record written to the database is stored in journal_checkpoint in the
+ * same transaction as the records, so on restart only the records after the checkpoint are
+ * replayed: nothing is lost and nothing is written twice. A torn record at the end of the file
+ * is dropped.
+ * <p>
+ * Records written inside a unit of work carry its transaction, the sequence of its first
+ * record, and only become visible when it commits. Right before the database commits, a
+ * commit record for the transaction is appended and forced; when that fails the unit of work
+ * rolls back, and a rollback after it appends an abort record. Only committed records are
+ * replayed, so a unit of work cut short by a crash before its commit record leaves none of
+ * its writes behind. A crash between the two commits replays tickets whose spot claim or
+ * release the database never committed, so recovery then sets the availability of the spots
+ * of the replayed tickets from the open tickets.
+ * <p>
+ * A single force of the file makes durable every record written before it started: a unit of
+ * work is forced once, with its commit record, and appends waiting on a running force share
+ * the next one.
+ */
+public class TicketJournal {
+
+    private static final Logger logger = LogManager.getLogger("TicketJournal");
+
+    private static final byte SAVE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte COMMIT = 4;
+    private static final byte ABORT = 5;
+
+    private static final int MAX_RECORD_SIZE = 4096;
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final Path file;
+    private final DataBaseConfig dataBaseConfig;
+    private final FileChannel channel;
+
+    // Guarded by this: every record appended and not yet written to the database, by sequence
+    private final TreeMap<Long, Record> records = new TreeMap<>();
+    private long nextSequence;
+    // Guarded by this: tickets closed by a record not yet written to the database, by vehicle and in time
+    private final Set<String> closingTickets = new HashSet<>();
+
+    // Committed records not yet in the database, read by TicketDAO
+    private final Map<String, Record> pendingTickets = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pendingSaves = new ConcurrentHashMap<>();
+    // Held exclusively while a flush commits, so a reader never counts a ticket twice
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    // Held while forcing the file; forcedSequence is the last sequence known to be on disk
+    private final Object forceLock = new Object();
+    private long forcedSequence;
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Opens the journal, creating the file if needed, and writes to the database every record
+     * left after the last checkpoint.
+     */
+    public TicketJournal(Path file, DataBaseConfig dataBaseConfig) throws IOException, SQLException {
+        this.file = file;
+        this.dataBaseConfig = dataBaseConfig;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+    }
+
+    /**
+     * Appends a new ticket. Its in time is truncated to the second, which is what the
+     * database keeps, so the ticket can later be updated by vehicle and in time.
+     */
+    public boolean save(Ticket ticket) {
+        ticket.setInTime(new Date(ticket.getInTime().getTime() / 1000 * 1000));
+        Record record = new Record(SAVE);
+        record.parkingNumber = ticket.getParkingSpot().getId();
+        record.parkingType = ticket.getParkingSpot().getParkingType();
+        record.vehicleRegNumber = ticket.getVehicleRegNumber();
+        record.priceInCents = Math.round(ticket.getPrice() * 100);
+        record.inTime = ticket.getInTime().getTime();
+        record.outTime = ticket.getOutTime() == null ? -1 : ticket.getOutTime().getTime();
+        return append(record);
+    }
+
+    /**
+     * Appends the price and out time of a ticket, identified by its vehicle and in time.
+     * Returns 1 when appended, 0 when a record still in the journal already closes the ticket
+     * and -1 on errors, as TicketDAO.updateTicket does.
+     */
+    public int update(Ticket ticket) {
+        Record record = new Record(UPDATE);
+        record.parkingNumber = ticket.getParkingSpot() == null ? 0 : ticket.getParkingSpot().getId();
+        record.parkingType = ticket.getParkingSpot() == null ? null : ticket.getParkingSpot().getParkingType();
+        record.vehicleRegNumber = ticket.getVehicleRegNumber();
+        record.priceInCents = Math.round(ticket.getPrice() * 100);
+        record.inTime = ticket.getInTime().getTime();
+        record.outTime = ticket.getOutTime().getTime();
+        synchronized (this) {
+            if (!closingTickets.add(record.ticketKey())) {
+                return 0;
+            }
+        }
+        if (!append(record)) {
+            synchronized (this) {
+                closingTickets.remove(record.ticketKey());
+            }
+            return -1;
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the latest ticket of the vehicle if it is still waiting in the journal, or null
+     * when the database has it.
+     */
+    public Ticket getPendingTicket(String vehicleRegNumber) {
+        Transaction transaction = UnitOfWork.resource(this, () -> null);
+        Record record = transaction == null ? null : transaction.tickets.get(vehicleRegNumber);
+        if (record == null) {
+            record = pendingTickets.get(vehicleRegNumber);
+        }
+        return record == null ? null : record.toTicket();
+    }
+
+    /**
+     * Counts the tickets of the vehicle in the database, given by the function, plus those
+     * still waiting in the journal.
+     */
+    public int countTickets(String vehicleRegNumber, ToIntFunction<String> countInDataBase) {
+        Transaction transaction = UnitOfWork.resource(this, () -> null);
+        int count = transaction == null ? 0 : transaction.saves.getOrDefault(vehicleRegNumber, 0);
+        flushLock.readLock().lock();
+        try {
+            return count + countInDataBase.applyAsInt(vehicleRegNumber) + pendingSaves.getOrDefault(vehicleRegNumber, 0);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    public synchronized int getPendingRecords() {
+        return records.size();
+    }
+
+    public synchronized void start(long flushPeriodMillis) {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ticket-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.error("Error flushing ticket journal", e);
+            }
+        }, flushPeriodMillis, flushPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the flusher, writes what is left to the database and closes the file.
+     */
+    public void close() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = flusher;
+            flusher = null;
+        }
+        if (stopped != null) {
+            // Not holding the lock, which a running flush needs to finish
+            stopped.shutdown();
+            try {
+                stopped.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error closing ticket journal " + file, e);
+        }
+    }
+
+    /**
+     * Writes the committed records to the database, oldest first, and stops at the first
+     * record whose unit of work is still running. Returns false when the database refused
+     * them; they stay in the journal and are tried again on the next flush.
+     */
+    public boolean flush() {
+        while (true) {
+            List<Record> batch = nextBatch();
+            if (batch.isEmpty()) {
+                truncateIfFlushed();
+                return true;
+            }
+            if (!write(batch)) {
+                return false;
+            }
+        }
+    }
+
+    private synchronized List<Record> nextBatch() {
+        List<Record> batch = new ArrayList<>();
+        for (Record record : records.values()) {
+            if (!record.resolved || batch.size() == FLUSH_BATCH_SIZE) {
+                break;
+            }
+            batch.add(record);
+        }
+        return batch;
+    }
+
+    private boolean write(List<Record> batch) {
+        long lastSequence = batch.get(batch.size() - 1).sequence;
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement save = con.prepareStatement(DBConstants.SAVE_TICKET);
+                 PreparedStatement update = con.prepareStatement(DBConstants.UPDATE_TICKET_BY_VEHICLE_AND_IN_TIME);
+                 PreparedStatement checkpoint = con.prepareStatement(DBConstants.UPDATE_JOURNAL_CHECKPOINT)) {
+                // Saves first: an update in the batch may close a ticket saved in the same batch
+                for (Record record : batch) {
+                    if (record.type == SAVE && !record.cancelled) {
+                        save.setInt(1, record.parkingNumber);
+                        save.setString(2, record.vehicleRegNumber);
+                        save.setDouble(3, record.priceInCents / 100.0);
+                        save.setTimestamp(4, new Timestamp(record.inTime));
+                        save.setTimestamp(5, record.outTime < 0 ? null : new Timestamp(record.outTime));
+                        save.addBatch();
+                    } else if (record.type == UPDATE && !record.cancelled) {
+                        update.setDouble(1, record.priceInCents / 100.0);
+                        update.setTimestamp(2, new Timestamp(record.outTime));
+                        update.setString(3, record.vehicleRegNumber);
+                        update.setTimestamp(4, new Timestamp(record.inTime));
+                        update.addBatch();
+                    }
+                }
+                save.executeBatch();
+                for (int updated : update.executeBatch()) {
+                    if (updated == 0) {
+                        logger.warn("A journaled ticket update matched no ticket in the database");
+                    }
+                }
+                checkpoint.setLong(1, lastSequence);
+                checkpoint.executeUpdate();
+            }
+            flushLock.writeLock().lock();
+            try {
+                con.commit();
+                removeFlushed(batch, lastSequence);
+            } finally {
+                flushLock.writeLock().unlock();
+            }
+            return true;
+        } catch (SQLException ex) {
+            logger.error("Error writing " + batch.size() + " journaled ticket records, will retry", ex);
+            rollback(con);
+            return false;
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        } finally {
+            release(con);
+        }
+    }
+
+    private synchronized void removeFlushed(List<Record> batch, long lastSequence) {
+        for (Record record : batch) {
+            records.remove(record.sequence);
+            if (record.cancelled || record.isMarker()) {
+                continue;
+            }
+            if (record.type == UPDATE) {
+                // The database now refuses a second close
+                closingTickets.remove(record.ticketKey());
+            }
+            Record pending = pendingTickets.get(record.vehicleRegNumber);
+            if (pending != null && pending.sequence <= lastSequence) {
+                pendingTickets.remove(record.vehicleRegNumber, pending);
+            }
+            if (record.type == SAVE) {
+                pendingSaves.computeIfPresent(record.vehicleRegNumber, (plate, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+
+    private synchronized void truncateIfFlushed() {
+        if (!records.isEmpty() || !channel.isOpen()) {
+            return;
+        }
+        try {
+            if (channel.size() > 0) {
+                channel.truncate(0);
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            logger.error("Error truncating ticket journal " + file, e);
+        }
+    }
+
+    private boolean append(Record record) {
+        Transaction transaction = UnitOfWork.resource(this, this::newTransaction);
+        try {
+            synchronized (this) {
+                record.sequence = nextSequence++;
+                if (transaction != null) {
+                    if (transaction.id == 0) {
+                        transaction.id = record.sequence;
+                    }
+                    record.transaction = transaction.id;
+                }
+                writeRecord(record);
+                records.put(record.sequence, record);
+            }
+        } catch (IOException e) {
+            logger.error("Error appending to ticket journal " + file, e);
+            return false;
+        }
+        if (transaction != null) {
+            // Forced with the commit record
+            transaction.add(record);
+            return true;
+        }
+        try {
+            force(record.sequence);
+        } catch (IOException e) {
+            logger.error("Error forcing ticket journal " + file, e);
+            synchronized (this) {
+                record.cancelled = true;
+                record.resolved = true;
+            }
+            return false;
+        }
+        commit(record);
+        return true;
+    }
+
+    /**
+     * Forces the file to disk unless a force started after the record was written already did.
+     * Appends arriving during a force wait for it, then share a single force for all of them.
+     */
+    private void force(long sequence) throws IOException {
+        synchronized (forceLock) {
+            if (forcedSequence >= sequence) {
+                return;
+            }
+            long written;
+            synchronized (this) {
+                written = nextSequence - 1;
+            }
+            channel.force(false);
+            forcedSequence = written;
+        }
+    }
+
+    private void writeRecord(Record record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(record.sequence);
+        out.writeByte(record.type);
+        if (record.isMarker()) {
+            out.writeLong(record.transaction);
+        } else {
+            out.writeInt(record.parkingNumber);
+            out.writeUTF(record.parkingType == null ? "" : record.parkingType.name());
+            out.writeUTF(record.vehicleRegNumber);
+            out.writeLong(record.priceInCents);
+            out.writeLong(record.inTime);
+            out.writeLong(record.outTime);
+            out.writeLong(record.transaction);
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 8);
+        buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private synchronized void commit(Record record) {
+        record.resolved = true;
+        if (record.type == SAVE) {
+            pendingSaves.merge(record.vehicleRegNumber, 1, Integer::sum);
+        }
+        pendingTickets.put(record.vehicleRegNumber, record);
+    }
+
+    /**
+     * Appends and forces the commit record of the transaction, right before the database
+     * commits the rest of its unit of work. Throws when it cannot, so the unit of work rolls
+     * back rather than report writes a restart would drop.
+     */
+    private void prepareCommit(Transaction transaction) {
+        if (transaction.records.isEmpty()) {
+            return;
+        }
+        // Set first: a record written but not forced may still reach the disk
+        transaction.commitAppended = true;
+        try {
+            appendMarker(COMMIT, transaction.id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to commit ticket journal transaction " + transaction.id, e);
+        }
+    }
+
+    /**
+     * Skips the records of a unit of work rolled back. When its commit record may already be
+     * in the file, an abort record keeps a restart from replaying them.
+     */
+    private void abort(Transaction transaction) {
+        transaction.records.forEach(this::cancel);
+        if (!transaction.commitAppended) {
+            return;
+        }
+        try {
+            appendMarker(ABORT, transaction.id);
+        } catch (IOException e) {
+            // A restart replays the records and reconciles their spots with the tickets
+            logger.error("Error appending abort of ticket journal transaction " + transaction.id, e);
+        }
+    }
+
+    private void appendMarker(byte type, long transaction) throws IOException {
+        Record marker = new Record(type);
+        marker.transaction = transaction;
+        marker.resolved = true;
+        synchronized (this) {
+            marker.sequence = nextSequence++;
+            writeRecord(marker);
+            records.put(marker.sequence, marker);
+        }
+        force(marker.sequence);
+    }
+
+    /**
+     * Skips a record of a unit of work rolled back.
+     */
+    private synchronized void cancel(Record record) {
+        record.cancelled = true;
+        record.resolved = true;
+        if (record.type == UPDATE) {
+            closingTickets.remove(record.ticketKey());
+        }
+    }
+
+    private Transaction newTransaction() {
+        Transaction transaction = new Transaction();
+        UnitOfWork.beforeCommit(() -> prepareCommit(transaction));
+        UnitOfWork.afterCommit(() -> transaction.records.forEach(this::commit));
+        UnitOfWork.afterRollback(() -> abort(transaction));
+        return transaction;
+    }
+
+    /**
+     * Records appended by the current unit of work, visible to it only until it commits.
+     */
+    private static final class Transaction {
+        // Sequence of the first record, set under the journal lock
+        private long id;
+        private boolean commitAppended;
+        private final List<Record> records = new ArrayList<>();
+        private final Map<String, Record> tickets = new HashMap<>();
+        private final Map<String, Integer> saves = new HashMap<>();
+
+        private void add(Record record) {
+            records.add(record);
+            tickets.put(record.vehicleRegNumber, record);
+            if (record.type == SAVE) {
+                saves.merge(record.vehicleRegNumber, 1, Integer::sum);
+            }
+        }
+    }
+
+    private void recover() throws IOException, SQLException {
+        long checkpoint = readCheckpoint();
+        long lastSequence = checkpoint;
+        long validLength = 0;
+        Map<Long, Record> recovered = new TreeMap<>();
+        Set<Long> committed = new HashSet<>();
+        Set<Long> aborted = new HashSet<>();
+
+        channel.position(0);
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+        DataInputStream data = new DataInputStream(in);
+        while (true) {
+            Record record = readRecord(data);
+            if (record == null) {
+                break;
+            }
+            validLength += record.encodedLength;
+            lastSequence = Math.max(lastSequence, record.sequence);
+            if (record.sequence > checkpoint) {
+                recovered.put(record.sequence, record);
+            }
+            if (record.type == COMMIT) {
+                committed.add(record.transaction);
+            } else if (record.type == ABORT) {
+                aborted.add(record.transaction);
+            }
+        }
+        if (validLength < channel.size()) {
+            logger.warn("Dropping " + (channel.size() - validLength) + " bytes of torn records at the end of ticket journal " + file);
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+        channel.position(validLength);
+        nextSequence = lastSequence + 1;
+        forcedSequence = lastSequence;
+        if (recovered.isEmpty()) {
+            truncateIfFlushed();
+            return;
+        }
+
+        // The records of a unit of work rolled back or cut short by the crash before its commit
+        // record are dropped: the database has none of its other writes either
+        Set<Integer> parkingNumbers = new HashSet<>();
+        int dropped = 0;
+        for (Record record : recovered.values()) {
+            if (record.isMarker()) {
+                record.resolved = true;
+                records.put(record.sequence, record);
+                continue;
+            }
+            if (record.transaction != 0
+                    && (!committed.contains(record.transaction) || aborted.contains(record.transaction))) {
+                dropped++;
+                continue;
+            }
+            records.put(record.sequence, record);
+            commit(record);
+            if (record.parkingNumber > 0) {
+                parkingNumbers.add(record.parkingNumber);
+            }
+        }
+        logger.info("Replaying " + (recovered.size() - dropped) + " ticket journal records after sequence " + checkpoint
+                + ", dropping " + dropped + " never committed");
+        if (!flush()) {
+            throw new SQLException("Unable to replay ticket journal " + file);
+        }
+        reconcileParkingSpots(parkingNumbers);
+    }
+
+    /**
+     * Reads the next record, or returns null at the end of the file or at a torn record.
+     */
+    private static Record readRecord(DataInputStream data) throws IOException {
+        try {
+            int length = data.readInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            data.readFully(payload);
+            int expectedCrc = data.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                return null;
+            }
+
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(payload));
+            long sequence = fields.readLong();
+            Record record = new Record(fields.readByte());
+            record.sequence = sequence;
+            record.encodedLength = length + 8;
+            if (record.isMarker()) {
+                record.transaction = fields.readLong();
+            } else if (record.type == SAVE || record.type == UPDATE) {
+                record.parkingNumber = fields.readInt();
+                String parkingType = fields.readUTF();
+                record.parkingType = parkingType.isEmpty() ? null : ParkingType.valueOf(parkingType);
+                record.vehicleRegNumber = fields.readUTF();
+                record.priceInCents = fields.readLong();
+                record.inTime = fields.readLong();
+                record.outTime = fields.readLong();
+                record.transaction = fields.readLong();
+            } else {
+                return null;
+            }
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Takes the spots of the replayed tickets with an open ticket and frees the others. A
+     * ticket saved outside a unit of work, or in one whose database commit the crash cut
+     * short, is replayed although its spot was never claimed or released.
+     */
+    private void reconcileParkingSpots(Set<Integer> parkingNumbers) throws SQLException {
+        if (parkingNumbers.isEmpty()) {
+            return;
+        }
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.RECONCILE_PARKING_SPOT)) {
+            for (int parkingNumber : parkingNumbers) {
+                ps.setInt(1, parkingNumber);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long readCheckpoint() throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_JOURNAL_CHECKPOINT);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back ticket journal flush", e);
+            }
+        }
+    }
+
+    private static void release(Connection con) {
+        if (con != null) {
+            try {
+                con.setAutoCommit(true);
+                con.close();
+            } catch (SQLException e) {
+                logger.error("Error while releasing ticket journal connection", e);
+            }
+        }
+    }
+
+    private static final class Record {
+        private final byte type;
+        private long sequence;
+        private int encodedLength;
+        private int parkingNumber;
+        private ParkingType parkingType;
+        private String vehicleRegNumber;
+        private long priceInCents;
+        private long inTime;
+        private long outTime;
+        // Transaction of the unit of work that wrote the record, 0 outside of one
+        private long transaction;
+        // Set once the unit of work that wrote the record has committed or rolled back
+        private boolean resolved;
+        private boolean cancelled;
+
+        private Record(byte type) {
+            this.type = type;
+        }
+
+        // A commit or abort record of a transaction
+        private boolean isMarker() {
+            return type == COMMIT || type == ABORT;
+        }
+
+        private String ticketKey() {
+            return vehicleRegNumber + '@' + inTime;
+        }
+
+        private Ticket toTicket() {
+            Ticket ticket = new Ticket();
+            if (parkingNumber > 0) {
+                ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+            }
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(priceInCents / 100.0);
+            ticket.setInTime(new Date(inTime));
+            ticket.setOutTime(outTime < 0 ? null : new Date(outTime));
+            return ticket;
+        }
+    }
+}
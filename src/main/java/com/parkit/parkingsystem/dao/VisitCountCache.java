@@ -0,0 +1,110 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded LRU cache of the number of tickets recorded per vehicle registration number.
+ * Entries older than the time to live are reloaded from the database on next access.
+ */
+public class VisitCountCache {
+
+    private static final class Entry {
+        private int visits;
+        private final long loadedAt;
+
+        private Entry(int visits, long loadedAt) {
+            this.visits = visits;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final long timeToLiveMillis;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public VisitCountCache(int maxSize, long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached visit count, or null when the plate has to be looked up in the database.
+     */
+    public synchronized Integer get(String vehicleRegNumber) {
+        Entry entry = entries.get(vehicleRegNumber);
+        if (entry == null || isExpired(entry)) {
+            if (entry != null) {
+                entries.remove(vehicleRegNumber);
+            }
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.visits;
+    }
+
+    public synchronized void put(String vehicleRegNumber, int visits) {
+        entries.put(vehicleRegNumber, new Entry(visits, System.currentTimeMillis()));
+    }
+
+    /**
+     * Caches a count read from the database. A live count already cached is only raised,
+     * never lowered: the read may have missed a visit counted since.
+     */
+    public synchronized void load(String vehicleRegNumber, int visits) {
+        Entry entry = entries.get(vehicleRegNumber);
+        if (entry == null || isExpired(entry) || entry.visits < visits) {
+            entries.put(vehicleRegNumber, new Entry(visits, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Counts one more visit for a plate already in the cache. Unknown plates are left out so
+     * that their next lookup reads the full count from the database.
+     */
+    public synchronized void increment(String vehicleRegNumber) {
+        Entry entry = entries.get(vehicleRegNumber);
+        if (entry != null) {
+            entry.visits++;
+        }
+    }
+
+    public synchronized void invalidate(String vehicleRegNumber) {
+        entries.remove(vehicleRegNumber);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return timeToLiveMillis > 0 && System.currentTimeMillis() - entry.loadedAt > timeToLiveMillis;
+    }
+}
@@ -0,0 +1,249 @@
+package com.parkit.parkingsystem.export;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the files of {@link TicketColumnWriter} a block at a time. Each call to next decodes a
+ * whole block, column by column, into the primitive arrays of a reused {@link Batch}, so a scan
+ * allocates nothing per ticket and never touches the database.
+ */
+public class TicketColumnReader implements AutoCloseable {
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+    private final List<String> plates = new ArrayList<>();
+
+    private ByteBuffer block = ByteBuffer.allocate(1024);
+    private byte[] bytes = block.array();
+    private int position;
+    private int limit;
+    private boolean ended;
+
+    public TicketColumnReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            readFully(header);
+            if (header.getInt(0) != TicketColumnWriter.MAGIC) {
+                throw new IOException(file + " is not a ticket export");
+            }
+            if (header.getInt(4) != TicketColumnWriter.VERSION) {
+                throw new IOException("Unsupported ticket export version " + header.getInt(4) + " in " + file);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Tickets of one block, in the order they were written.
+     */
+    public static final class Batch {
+        private byte[] parkingTypes = new byte[0];
+        private int[] parkingNumbers = new int[0];
+        private int[] plateIds = new int[0];
+        private long[] inTimes = new long[0];
+        private long[] outTimes = new long[0];
+        private long[] priceInCents = new long[0];
+        private int size;
+
+        private void resize(int capacity) {
+            if (parkingTypes.length < capacity) {
+                parkingTypes = new byte[capacity];
+                parkingNumbers = new int[capacity];
+                plateIds = new int[capacity];
+                inTimes = new long[capacity];
+                outTimes = new long[capacity];
+                priceInCents = new long[capacity];
+            }
+            size = capacity;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public ParkingType getParkingType(int index) {
+            return PARKING_TYPES[parkingTypes[index]];
+        }
+
+        public int getParkingNumber(int index) {
+            return parkingNumbers[index];
+        }
+
+        /**
+         * Index of the plate in the dictionary, see {@link TicketColumnReader#getPlate(int)}.
+         */
+        public int getPlateId(int index) {
+            return plateIds[index];
+        }
+
+        public long getInTime(int index) {
+            return inTimes[index];
+        }
+
+        public long getOutTime(int index) {
+            return outTimes[index];
+        }
+
+        public long getPriceInCents(int index) {
+            return priceInCents[index];
+        }
+    }
+
+    /**
+     * Decodes the next block into the batch. Returns false at the end of the file; a file cut
+     * short or damaged is reported with an IOException.
+     */
+    public boolean next(Batch batch) throws IOException {
+        if (ended) {
+            batch.size = 0;
+            return false;
+        }
+        lengthBuffer.clear();
+        readFully(lengthBuffer);
+        int length = lengthBuffer.getInt(0);
+        if (length == 0) {
+            ended = true;
+            batch.size = 0;
+            return false;
+        }
+        if (length < 0) {
+            throw new IOException("Corrupt ticket export block length " + length);
+        }
+        if (block.capacity() < length + 4) {
+            block = ByteBuffer.allocate(Math.max(length + 4, block.capacity() * 2));
+            bytes = block.array();
+        }
+        block.clear().limit(length + 4);
+        readFully(block);
+        crc.reset();
+        crc.update(bytes, 0, length);
+        if ((int) crc.getValue() != block.getInt(length)) {
+            throw new IOException("Corrupt ticket export block, checksum mismatch");
+        }
+        position = 0;
+        limit = length;
+        decode(batch);
+        return true;
+    }
+
+    private void decode(Batch batch) throws IOException {
+        int size = readInt();
+        long timeUnit = readLong();
+        if (timeUnit != TicketColumnWriter.SECONDS && timeUnit != TicketColumnWriter.MILLISECONDS) {
+            throw new IOException("Corrupt ticket export, unknown time unit " + timeUnit);
+        }
+        int newPlates = readInt();
+        for (int i = 0; i < newPlates; i++) {
+            int plateLength = readInt();
+            checkRemaining(plateLength);
+            plates.add(new String(bytes, position, plateLength, StandardCharsets.UTF_8));
+            position += plateLength;
+        }
+        // Every ticket takes at least 6 bytes, which bounds the batch by the block read
+        checkRemaining(size);
+        batch.resize(size);
+        for (int i = 0; i < size; i++) {
+            byte parkingType = bytes[position++];
+            if (parkingType < 0 || parkingType >= PARKING_TYPES.length) {
+                throw new IOException("Corrupt ticket export, unknown parking type " + parkingType);
+            }
+            batch.parkingTypes[i] = parkingType;
+        }
+        int[] parkingNumbers = batch.parkingNumbers;
+        for (int i = 0; i < size; i++) {
+            parkingNumbers[i] = (int) readLong();
+        }
+        int[] plateIds = batch.plateIds;
+        for (int i = 0; i < size; i++) {
+            int plateId = (int) readLong();
+            if (plateId < 0 || plateId >= plates.size()) {
+                throw new IOException("Corrupt ticket export, unknown plate " + plateId);
+            }
+            plateIds[i] = plateId;
+        }
+        long[] inTimes = batch.inTimes;
+        long inTime = 0;
+        for (int i = 0; i < size; i++) {
+            inTime += Varints.unzigzag(readLong());
+            inTimes[i] = inTime * timeUnit;
+        }
+        long[] outTimes = batch.outTimes;
+        for (int i = 0; i < size; i++) {
+            outTimes[i] = inTimes[i] + readLong() * timeUnit;
+        }
+        long[] priceInCents = batch.priceInCents;
+        for (int i = 0; i < size; i++) {
+            priceInCents[i] = Varints.unzigzag(readLong());
+        }
+    }
+
+    private int readInt() throws IOException {
+        long value = readLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt ticket export, invalid count " + value);
+        }
+        return (int) value;
+    }
+
+    private long readLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position == limit) {
+                throw new IOException("Corrupt ticket export, block ends in a value");
+            }
+            byte b = bytes[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt ticket export, value longer than 64 bits");
+    }
+
+    private void checkRemaining(int length) throws IOException {
+        if (length > limit - position) {
+            throw new IOException("Corrupt ticket export, block shorter than its content");
+        }
+    }
+
+    public String getPlate(int plateId) {
+        return plates.get(plateId);
+    }
+
+    /**
+     * Number of distinct plates read so far.
+     */
+    public int getPlateCount() {
+        return plates.size();
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Ticket export cut short");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
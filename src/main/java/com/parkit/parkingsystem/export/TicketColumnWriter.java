@@ -0,0 +1,196 @@
+package com.parkit.parkingsystem.export;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Writes closed tickets to a compact columnar file, read back by {@link TicketColumnReader}
+ * without any database.
+ * <p>
+ * The file starts with [int magic][int version] and holds blocks of up to blockSize tickets,
+ * each framed as [int length][payload][int crc32] and ended by a block of length 0. A payload
+ * holds the row count, the time unit of the block, the plates first seen in the block, which
+ * extend the plate dictionary of the file, then each column in turn: the parking types (a byte
+ * each) and, as varints, the parking numbers, the plate dictionary indexes, the in times as
+ * zigzag deltas from the previous in time of the block, the stays (out time minus in time)
+ * and the prices in cents. Times are in seconds when the whole block is, as the database
+ * keeps them, and in milliseconds otherwise; tickets written in entry order keep the in time
+ * deltas down to two or three bytes.
+ */
+public class TicketColumnWriter implements AutoCloseable {
+
+    static final int MAGIC = 0x504B5458;
+    static final int VERSION = 1;
+
+    static final int SECONDS = 1000;
+    static final int MILLISECONDS = 1;
+
+    public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final CRC32 crc = new CRC32();
+
+    private final Map<String, Integer> plateIds = new HashMap<>();
+    private final List<byte[]> newPlates = new ArrayList<>();
+
+    private final byte[] parkingTypes;
+    private final int[] parkingNumbers;
+    private final int[] plates;
+    private final long[] inTimes;
+    private final long[] stays;
+    private final long[] priceInCents;
+    private int size;
+
+    private byte[] block = new byte[1024];
+    private long tickets;
+
+    public TicketColumnWriter(Path file) throws IOException {
+        this(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    public TicketColumnWriter(Path file, int blockSize) throws IOException {
+        this.blockSize = blockSize;
+        parkingTypes = new byte[blockSize];
+        parkingNumbers = new int[blockSize];
+        plates = new int[blockSize];
+        inTimes = new long[blockSize];
+        stays = new long[blockSize];
+        priceInCents = new long[blockSize];
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(header);
+    }
+
+    /**
+     * Adds a closed ticket; the out time cannot be before the in time.
+     */
+    public void write(int parkingNumber, String vehicleRegNumber, ParkingType parkingType, long inTime, long outTime,
+                      long priceInCents) throws IOException {
+        if (outTime < inTime) {
+            throw new IllegalArgumentException("Ticket of " + vehicleRegNumber + " closed before it was opened");
+        }
+        Integer plateId = plateIds.get(vehicleRegNumber);
+        if (plateId == null) {
+            plateId = plateIds.size();
+            plateIds.put(vehicleRegNumber, plateId);
+            newPlates.add(vehicleRegNumber.getBytes(StandardCharsets.UTF_8));
+        }
+        parkingTypes[size] = (byte) parkingType.ordinal();
+        parkingNumbers[size] = parkingNumber;
+        plates[size] = plateId;
+        inTimes[size] = inTime;
+        stays[size] = outTime - inTime;
+        this.priceInCents[size] = priceInCents;
+        size++;
+        tickets++;
+        if (size == blockSize) {
+            writeBlock();
+        }
+    }
+
+    public long getTickets() {
+        return tickets;
+    }
+
+    public int getPlates() {
+        return plateIds.size();
+    }
+
+    private void writeBlock() throws IOException {
+        int plateBytes = 0;
+        for (byte[] plate : newPlates) {
+            plateBytes += plate.length + Varints.MAX_LONG_BYTES;
+        }
+        // Length, row count, time unit, plate count, then 1 byte per type and 5 varints per row, then the crc
+        int maxLength = 4 + 3 * Varints.MAX_LONG_BYTES + plateBytes + size * (1 + 5 * Varints.MAX_LONG_BYTES) + 4;
+        if (block.length < maxLength) {
+            block = new byte[Math.max(maxLength, block.length * 2)];
+        }
+
+        int timeUnit = SECONDS;
+        for (int i = 0; i < size && timeUnit == SECONDS; i++) {
+            if (inTimes[i] % SECONDS != 0 || stays[i] % SECONDS != 0) {
+                timeUnit = MILLISECONDS;
+            }
+        }
+
+        int position = 4;
+        position = Varints.putLong(block, position, size);
+        position = Varints.putLong(block, position, timeUnit);
+        position = Varints.putLong(block, position, newPlates.size());
+        for (byte[] plate : newPlates) {
+            position = Varints.putLong(block, position, plate.length);
+            System.arraycopy(plate, 0, block, position, plate.length);
+            position += plate.length;
+        }
+        System.arraycopy(parkingTypes, 0, block, position, size);
+        position += size;
+        for (int i = 0; i < size; i++) {
+            position = Varints.putLong(block, position, parkingNumbers[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            position = Varints.putLong(block, position, plates[i]);
+        }
+        long previousInTime = 0;
+        for (int i = 0; i < size; i++) {
+            long inTime = inTimes[i] / timeUnit;
+            position = Varints.putLong(block, position, Varints.zigzag(inTime - previousInTime));
+            previousInTime = inTime;
+        }
+        for (int i = 0; i < size; i++) {
+            position = Varints.putLong(block, position, stays[i] / timeUnit);
+        }
+        for (int i = 0; i < size; i++) {
+            position = Varints.putLong(block, position, Varints.zigzag(priceInCents[i]));
+        }
+
+        int length = position - 4;
+        crc.reset();
+        crc.update(block, 4, length);
+        ByteBuffer buffer = ByteBuffer.wrap(block, 0, position + 4);
+        buffer.putInt(0, length);
+        buffer.putInt(position, (int) crc.getValue());
+        writeFully(buffer);
+
+        size = 0;
+        newPlates.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Writes the last block and the end of the file, and forces it to disk.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (size > 0) {
+                writeBlock();
+            }
+            ByteBuffer end = ByteBuffer.allocate(4);
+            end.putInt(0).flip();
+            writeFully(end);
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.parkit.parkingsystem.export;
+
+/**
+ * LEB128 variable-length integers, 7 bits a byte low bits first, with zigzag encoding for
+ * values that can be negative. Small values, like the gap between two entries or a price in
+ * cents, take one to three bytes instead of eight.
+ */
+final class Varints {
+
+    // A long takes at most 10 bytes
+    static final int MAX_LONG_BYTES = 10;
+
+    private Varints() {
+    }
+
+    static int putLong(byte[] bytes, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count, striped so that concurrent gates do not contend on a single cache line.
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+}
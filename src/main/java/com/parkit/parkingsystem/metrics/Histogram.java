@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free distribution of non-negative values with log-linear buckets, in the manner of HDR
+ * histograms: values below 64 get a bucket each, and every power of two above is split into 32
+ * buckets, so a percentile is reported within about 3% of the recorded value. Recording is a
+ * couple of atomic increments; percentiles are computed when the histogram is read.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int DIRECT_BUCKETS = SUB_BUCKETS * 2;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + DIRECT_BUCKETS;
+
+    private final double scale;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param scale factor from recorded values to reported values, 1e-9 to record
+     *              nanoseconds and report seconds
+     */
+    public Histogram(double scale) {
+        this.scale = scale;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long currentMax;
+        while (value > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, value)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum() * scale;
+    }
+
+    public double getMax() {
+        return max.get() * scale;
+    }
+
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : sum.sum() * scale / total;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall.
+     */
+    public double getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        if (rank >= total) {
+            return max.get() * scale;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(valueOf(i), max.get()) * scale;
+            }
+        }
+        return max.get() * scale;
+    }
+
+    static int bucketOf(long value) {
+        if (value < DIRECT_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS + 1);
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * The middle of the range of values counted in the bucket.
+     */
+    static long valueOf(int bucket) {
+        if (bucket < DIRECT_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) >>> 1);
+    }
+}
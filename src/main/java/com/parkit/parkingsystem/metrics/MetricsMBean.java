@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Read-only JMX view of a registry. Every counter and gauge is an attribute named after the
+ * metric and its labels; a histogram gives the attributes name.count, name.mean, name.p50,
+ * name.p99 and name.max. The attribute list follows the metrics registered since.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private static final String[] HISTOGRAM_ATTRIBUTES = {"count", "mean", "p50", "p99", "max"};
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Map<String, MetricsRegistry.Metric> metrics = registry.getMetrics();
+        MetricsRegistry.Metric metric = metrics.get(attribute);
+        if (metric != null && metric.value instanceof Counter) {
+            return ((Counter) metric.value).getCount();
+        }
+        if (metric != null && metric.value instanceof DoubleSupplier) {
+            return ((DoubleSupplier) metric.value).getAsDouble();
+        }
+        int separator = attribute.lastIndexOf('.');
+        metric = separator < 0 ? null : metrics.get(attribute.substring(0, separator));
+        if (metric != null && metric.value instanceof Histogram) {
+            Histogram histogram = (Histogram) metric.value;
+            switch (attribute.substring(separator + 1)) {
+                case "count":
+                    return (double) histogram.getCount();
+                case "mean":
+                    return histogram.getMean();
+                case "p50":
+                    return histogram.getPercentile(50);
+                case "p99":
+                    return histogram.getPercentile(99);
+                case "max":
+                    return histogram.getMax();
+                default:
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Skipped, as the JMX contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Map.Entry<String, MetricsRegistry.Metric> entry : registry.getMetrics().entrySet()) {
+            Object value = entry.getValue().value;
+            if (value instanceof Histogram) {
+                for (String suffix : HISTOGRAM_ATTRIBUTES) {
+                    attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + suffix, "double",
+                            suffix + " of " + entry.getValue().name, true, false, false));
+                }
+            } else {
+                attributes.add(new MBeanAttributeInfo(entry.getKey(), value instanceof Counter ? "long" : "double",
+                        entry.getValue().name, true, false, false));
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "Parking system metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+    }
+}
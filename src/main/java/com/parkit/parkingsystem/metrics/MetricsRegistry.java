@@ -0,0 +1,177 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Named counters, histograms and gauges of the application. Metrics are looked up once and
+ * kept in fields by the code recording them, so recording never touches the registry. They
+ * are read through JMX and in the plain-text format of Prometheus, one sample per line:
+ * <pre>
+ * gate_entry_seconds{quantile="0.99"} 0.0042
+ * db_statement_seconds_count{statement="GET_TICKET"} 1234
+ * </pre>
+ */
+public class MetricsRegistry {
+
+    private static final Logger logger = LogManager.getLogger("MetricsRegistry");
+
+    public static final String OBJECT_NAME = "com.parkit.parkingsystem:type=Metrics";
+
+    private static final double NANOS_TO_SECONDS = 1e-9;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+    static final class Metric {
+        final String name;
+        final String labels;
+        final Object value;
+
+        private Metric(String name, String labels, Object value) {
+            this.name = name;
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * Returns the counter of that name and labels, given as name and value pairs, creating it
+     * on first use.
+     */
+    public Counter counter(String name, String... labels) {
+        return (Counter) register(name, labels, Counter.class, new Counter());
+    }
+
+    /**
+     * A histogram of durations recorded in nanoseconds and reported in seconds.
+     */
+    public Histogram timer(String name, String... labels) {
+        return (Histogram) register(name, labels, Histogram.class, new Histogram(NANOS_TO_SECONDS));
+    }
+
+    public Histogram histogram(String name, String... labels) {
+        return (Histogram) register(name, labels, Histogram.class, new Histogram(1));
+    }
+
+    /**
+     * Registers a value read when the metrics are, replacing any gauge of the same name and
+     * labels.
+     */
+    public void gauge(String name, DoubleSupplier supplier, String... labels) {
+        String formattedLabels = formatLabels(labels);
+        metrics.put(name + formattedLabels, new Metric(name, formattedLabels, supplier));
+    }
+
+    private Object register(String name, String[] labels, Class<?> type, Object newMetric) {
+        String formattedLabels = formatLabels(labels);
+        String key = name + formattedLabels;
+        Metric metric = metrics.get(key);
+        if (metric == null) {
+            metric = metrics.computeIfAbsent(key, k -> new Metric(name, formattedLabels, newMetric));
+        }
+        if (!type.isInstance(metric.value)) {
+            throw new IllegalArgumentException("Metric " + key + " is already registered as another type");
+        }
+        return metric.value;
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        StringBuilder formatted = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                formatted.append(',');
+            }
+            formatted.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return formatted.append('}').toString();
+    }
+
+    /**
+     * The metrics sorted by name and labels.
+     */
+    Map<String, Metric> getMetrics() {
+        return new TreeMap<>(metrics);
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format. Histograms are written as summaries
+     * with their main quantiles, sum, count and max.
+     */
+    public void writeText(Appendable out) throws IOException {
+        String lastName = null;
+        for (Metric metric : getMetrics().values()) {
+            boolean histogram = metric.value instanceof Histogram;
+            if (!metric.name.equals(lastName)) {
+                String type = metric.value instanceof Counter ? "counter" : histogram ? "summary" : "gauge";
+                out.append("# TYPE ").append(metric.name).append(' ').append(type).append('\n');
+                lastName = metric.name;
+            }
+            if (metric.value instanceof Counter) {
+                sample(out, metric.name, metric.labels, ((Counter) metric.value).getCount());
+            } else if (histogram) {
+                Histogram values = (Histogram) metric.value;
+                for (double quantile : QUANTILES) {
+                    String quantileLabel = "quantile=\"" + quantile + "\"";
+                    String labels = metric.labels.isEmpty()
+                            ? "{" + quantileLabel + "}"
+                            : metric.labels.substring(0, metric.labels.length() - 1) + "," + quantileLabel + "}";
+                    sample(out, metric.name, labels, values.getPercentile(quantile * 100));
+                }
+                sample(out, metric.name + "_sum", metric.labels, values.getSum());
+                sample(out, metric.name + "_count", metric.labels, values.getCount());
+                sample(out, metric.name + "_max", metric.labels, values.getMax());
+            } else {
+                sample(out, metric.name, metric.labels, ((DoubleSupplier) metric.value).getAsDouble());
+            }
+        }
+    }
+
+    private static void sample(Appendable out, String name, String labels, double value) throws IOException {
+        out.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append(Long.toString((long) value));
+        } else {
+            out.append(Double.toString(value));
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server. Does nothing when already published.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new MetricsMBean(this), objectName);
+            }
+        } catch (JMException e) {
+            logger.error("Unable to publish metrics over JMX", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Names SQL statements after their DBConstants field, to label database metrics.
+ */
+public final class StatementNames {
+
+    public static final String OTHER = "OTHER";
+
+    private static final Map<String, String> names = new HashMap<>();
+
+    static {
+        for (Field field : DBConstants.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                try {
+                    names.put((String) field.get(null), field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private StatementNames() {
+    }
+
+    /**
+     * Returns the DBConstants name of the statement, or OTHER for SQL that is not one of them.
+     */
+    public static String of(String sql) {
+        return names.getOrDefault(sql, OTHER);
+    }
+}
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * A chunk of closed tickets held in parallel arrays, so repricing months of history does not
+ * build a Ticket, a ParkingSpot and two Dates per row. The arrays are reused between chunks.
+ */
+public class ClosedTicketBatch {
+
+    private final int[] ids;
+    private final ParkingType[] parkingTypes;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private final boolean[] recurring;
+    private final long[] priceInCents;
+    private int size;
+
+    public ClosedTicketBatch(int capacity) {
+        ids = new int[capacity];
+        parkingTypes = new ParkingType[capacity];
+        inTimes = new long[capacity];
+        outTimes = new long[capacity];
+        recurring = new boolean[capacity];
+        priceInCents = new long[capacity];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int id, ParkingType parkingType, long inTime, long outTime, boolean recurring, long priceInCents) {
+        this.ids[size] = id;
+        this.parkingTypes[size] = parkingType;
+        this.inTimes[size] = inTime;
+        this.outTimes[size] = outTime;
+        this.recurring[size] = recurring;
+        this.priceInCents[size] = priceInCents;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public int getLastId() {
+        return size == 0 ? 0 : ids[size - 1];
+    }
+
+    public ParkingType getParkingType(int index) {
+        return parkingTypes[index];
+    }
+
+    public long getInTime(int index) {
+        return inTimes[index];
+    }
+
+    public long getOutTime(int index) {
+        return outTimes[index];
+    }
+
+    public boolean isRecurring(int index) {
+        return recurring[index];
+    }
+
+    public long getPriceInCents(int index) {
+        return priceInCents[index];
+    }
+}
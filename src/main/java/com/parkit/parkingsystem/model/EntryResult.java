@@ -0,0 +1,58 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a vehicle entry. A parked vehicle carries its new ticket and whether it is a
+ * recurring user entitled to the discount at exit.
+ */
+public class EntryResult {
+
+    public enum Status {
+        PARKED,
+        PARKING_FULL,
+        FAILED
+    }
+
+    private final Status status;
+    private final Ticket ticket;
+    private final boolean recurring;
+    private final String message;
+
+    private EntryResult(Status status, Ticket ticket, boolean recurring, String message) {
+        this.status = status;
+        this.ticket = ticket;
+        this.recurring = recurring;
+        this.message = message;
+    }
+
+    public static EntryResult parked(Ticket ticket, boolean recurring) {
+        return new EntryResult(Status.PARKED, ticket, recurring, null);
+    }
+
+    public static EntryResult parkingFull(String message) {
+        return new EntryResult(Status.PARKING_FULL, null, false, message);
+    }
+
+    public static EntryResult failed(String message) {
+        return new EntryResult(Status.FAILED, null, false, message);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isParked() {
+        return status == Status.PARKED;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public boolean isRecurring() {
+        return recurring;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a vehicle exit or of a fare quote. The ticket carries the out time and the
+ * price, with the recurring discount already applied when granted.
+ */
+public class ExitResult {
+
+    public enum Status {
+        EXITED,
+        QUOTED,
+        NO_TICKET,
+        FAILED
+    }
+
+    private final Status status;
+    private final Ticket ticket;
+    private final boolean recurring;
+    private final String message;
+
+    private ExitResult(Status status, Ticket ticket, boolean recurring, String message) {
+        this.status = status;
+        this.ticket = ticket;
+        this.recurring = recurring;
+        this.message = message;
+    }
+
+    public static ExitResult exited(Ticket ticket, boolean recurring) {
+        return new ExitResult(Status.EXITED, ticket, recurring, null);
+    }
+
+    public static ExitResult quoted(Ticket ticket, boolean recurring) {
+        return new ExitResult(Status.QUOTED, ticket, recurring, null);
+    }
+
+    public static ExitResult noTicket(String message) {
+        return new ExitResult(Status.NO_TICKET, null, false, message);
+    }
+
+    public static ExitResult failed(String message) {
+        return new ExitResult(Status.FAILED, null, false, message);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.EXITED || status == Status.QUOTED;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public double getPrice() {
+        return ticket == null ? 0 : ticket.getPrice();
+    }
+
+    public boolean isRecurring() {
+        return recurring;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -2,15 +2,30 @@ package com.parkit.parkingsystem.model;
 
 import com.parkit.parkingsystem.constants.ParkingType;
 
+/**
+ * A spot of a level of a lot. Spot numbers are unique across lots.
+ */
 public class ParkingSpot {
+
+    // Lot of the spots created before there were several
+    public static final int DEFAULT_LOT = 1;
+
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
+    private int lotNumber;
+    private int levelNumber;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
+        this(number, parkingType, isAvailable, DEFAULT_LOT, 0);
+    }
+
+    public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable, int lotNumber, int levelNumber) {
         this.number = number;
         this.parkingType = parkingType;
         this.isAvailable = isAvailable;
+        this.lotNumber = lotNumber;
+        this.levelNumber = levelNumber;
     }
 
     public int getId() {
@@ -37,6 +52,22 @@ public class ParkingSpot {
         isAvailable = available;
     }
 
+    public int getLotNumber() {
+        return lotNumber;
+    }
+
+    public void setLotNumber(int lotNumber) {
+        this.lotNumber = lotNumber;
+    }
+
+    public int getLevelNumber() {
+        return levelNumber;
+    }
+
+    public void setLevelNumber(int levelNumber) {
+        this.levelNumber = levelNumber;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,270 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Replays a log of gate events through ParkingService with their recorded timestamps, to
+ * backfill from the old gate controllers or to load-test. One event per line:
+ * <pre>
+ * # timestamp,action,plate,type
+ * 2024-03-01T08:15:00Z,ENTRY,AB-123-CD,CAR
+ * 1709284500000,EXIT,AB-123-CD
+ * </pre>
+ * Timestamps are ISO-8601 instants or epoch milliseconds; events are expected in time order.
+ * The file is streamed and events are committed by chunks: every event of a chunk runs in one
+ * transaction on one connection. A chunk hitting an unexpected failure is rolled back and
+ * replayed one event per transaction, so only the failing events are rejected. Rejections are
+ * logged once their chunk or event has committed, so a rolled back chunk logs nothing.
+ */
+public class EventReplayService {
+
+    private static final Logger logger = LogManager.getLogger("EventReplayService");
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final ParkingService parkingService;
+    private final int chunkSize;
+
+    public EventReplayService(ParkingService parkingService) {
+        this(parkingService, DEFAULT_CHUNK_SIZE);
+    }
+
+    public EventReplayService(ParkingService parkingService, int chunkSize) {
+        this.parkingService = parkingService;
+        this.chunkSize = chunkSize;
+    }
+
+    public Report replay(Path file) throws IOException {
+        long start = System.nanoTime();
+        Report report = new Report();
+        List<GateEvent> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || (lineNumber == 1 && trimmed.startsWith("timestamp"))) {
+                    continue;
+                }
+                report.events++;
+                GateEvent event = parse(lineNumber, trimmed);
+                if (event == null) {
+                    Report malformed = new Report();
+                    malformed.reject(lineNumber, "Malformed event: " + trimmed);
+                    report.add(malformed);
+                    continue;
+                }
+                chunk.add(event);
+                if (chunk.size() == chunkSize) {
+                    replayChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            replayChunk(chunk, report);
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        logger.info("Replayed " + report.events + " events from " + file + ": " + report.entries + " entries, "
+                + report.exits + " exits, " + report.rejected + " rejected, "
+                + Math.round(report.getEventsPerSecond()) + " events/s");
+        return report;
+    }
+
+    private void replayChunk(List<GateEvent> chunk, Report report) {
+        Report chunkReport = new Report();
+        try {
+            UnitOfWork.execute(() -> {
+                for (GateEvent event : chunk) {
+                    if (!apply(event, chunkReport)) {
+                        throw new IllegalStateException("Event at line " + event.lineNumber + " failed");
+                    }
+                }
+                return null;
+            });
+            report.add(chunkReport);
+        } catch (Exception e) {
+            logger.warn("Replaying chunk event by event after a failure: " + e.getMessage());
+            for (GateEvent event : chunk) {
+                Report eventReport = new Report();
+                if (!apply(event, eventReport)) {
+                    eventReport.reject(event.lineNumber, "Unable to replay event");
+                }
+                report.add(eventReport);
+            }
+        }
+    }
+
+    /**
+     * Runs one event, counting it as applied or rejected. Returns false on an unexpected
+     * failure that must roll back the surrounding transaction.
+     */
+    private boolean apply(GateEvent event, Report report) {
+        if (event.parkingType != null) {
+            EntryResult result = parkingService.enter(event.parkingType, event.vehicleRegNumber, new Date(event.time));
+            if (result.getStatus() == EntryResult.Status.FAILED) {
+                return false;
+            }
+            if (result.isParked()) {
+                report.entries++;
+            } else {
+                report.reject(event.lineNumber, result.getMessage());
+            }
+        } else {
+            ExitResult result = parkingService.exit(event.vehicleRegNumber, new Date(event.time));
+            if (result.getStatus() == ExitResult.Status.FAILED) {
+                return false;
+            }
+            if (result.isSuccess()) {
+                report.exits++;
+                report.revenueInCents += Math.round(result.getPrice() * 100);
+            } else {
+                report.reject(event.lineNumber, result.getMessage());
+            }
+        }
+        return true;
+    }
+
+    static GateEvent parse(long lineNumber, String line) {
+        String[] fields = line.split(",");
+        if (fields.length < 3) {
+            return null;
+        }
+        long time;
+        try {
+            String timestamp = fields[0].trim();
+            time = Character.isDigit(timestamp.charAt(0)) && timestamp.indexOf('-') < 0
+                    ? Long.parseLong(timestamp)
+                    : Instant.parse(timestamp).toEpochMilli();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+        String action = fields[1].trim().toUpperCase();
+        String vehicleRegNumber = fields[2].trim();
+        if (vehicleRegNumber.isEmpty()) {
+            return null;
+        }
+        if ("ENTRY".equals(action)) {
+            if (fields.length < 4) {
+                return null;
+            }
+            try {
+                return new GateEvent(lineNumber, time, vehicleRegNumber, ParkingType.valueOf(fields[3].trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        if ("EXIT".equals(action)) {
+            return new GateEvent(lineNumber, time, vehicleRegNumber, null);
+        }
+        return null;
+    }
+
+    static final class GateEvent {
+        private final long lineNumber;
+        private final long time;
+        private final String vehicleRegNumber;
+        // null for an exit
+        private final ParkingType parkingType;
+
+        private GateEvent(long lineNumber, long time, String vehicleRegNumber, ParkingType parkingType) {
+            this.lineNumber = lineNumber;
+            this.time = time;
+            this.vehicleRegNumber = vehicleRegNumber;
+            this.parkingType = parkingType;
+        }
+    }
+
+    public static class Report {
+        private long events;
+        private long entries;
+        private long exits;
+        private long rejected;
+        private long revenueInCents;
+        private long elapsedNanos;
+        private final List<String> rejections = new ArrayList<>();
+
+        /**
+         * Counts a rejected event of a chunk or of a single event, logged when added to the
+         * replay report.
+         */
+        private void reject(long lineNumber, String reason) {
+            rejected++;
+            rejections.add("line " + lineNumber + ": " + reason);
+        }
+
+        /**
+         * Adds the counts of a chunk or of a single event, once committed, and logs its rejections.
+         */
+        private void add(Report other) {
+            entries += other.entries;
+            exits += other.exits;
+            rejected += other.rejected;
+            revenueInCents += other.revenueInCents;
+            for (String rejection : other.rejections) {
+                logger.warn("Rejected event at " + rejection);
+                if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                    rejections.add(rejection);
+                }
+            }
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getExits() {
+            return exits;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getRevenueInCents() {
+            return revenueInCents;
+        }
+
+        /**
+         * The first rejected events with their line number and reason.
+         */
+        public List<String> getRejections() {
+            return rejections;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getEventsPerSecond() {
+            return elapsedNanos == 0 ? 0 : events * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -1,60 +1,53 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.config.TariffConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Histogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
 import com.parkit.parkingsystem.model.Ticket;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-
 public class FareCalculatorService {
 
-    private static final int DISCOUNT_PERCENT = 5;
-    private static final double DIGITAL_HOUR_FREE = 0.50;
-
-    public void calculateFare(Ticket ticket, boolean discount){
-
-        if (!isValidDate(ticket)) {
-            throw new IllegalArgumentException("Out time provided is incorrect:"+ticket.getOutTime().toString());
-        }
+    // Fares of tickets closed or quoted; bulk repricing goes through calculateFareInCents only
+    private static final Histogram fares = MetricsRegistry.getDefault().histogram("fare_cents");
 
-        long inTime = (long) ticket.getInTime().getTime();
-        long outTime = (long) ticket.getOutTime().getTime();
+    private final TariffConfig tariffConfig;
 
-        long timeDuration = outTime - inTime;
-        double decimalHours = timeDuration/3600000.0;
+    public FareCalculatorService() {
+        this(TariffTable.defaultTable());
+    }
 
-        if (decimalHours < DIGITAL_HOUR_FREE) {
-            ticket.setPrice(0);
+    public FareCalculatorService(TariffTable tariffTable) {
+        this(new TariffConfig(tariffTable));
+    }
 
-            return;
-        }
+    public FareCalculatorService(TariffConfig tariffConfig) {
+        this.tariffConfig = tariffConfig;
+    }
 
-        double roundedPrice = 0.00;
+    public void calculateFare(Ticket ticket, boolean discount){
 
-        switch (ticket.getParkingSpot().getParkingType()){
-            case CAR: {
-                roundedPrice = roundPrice(decimalHours * Fare.CAR_RATE_PER_HOUR);
-                ticket.setPrice(roundedPrice);
-                break;
-            }
-            case BIKE: {
-                roundedPrice = roundPrice(decimalHours * Fare.BIKE_RATE_PER_HOUR);
-                ticket.setPrice(roundedPrice);
-                break;
-            }
-            default: throw new IllegalArgumentException("Unkown Parking Type");
+        if (!isValidDate(ticket)) {
+            throw new IllegalArgumentException("Out time provided is incorrect:"+ticket.getOutTime().toString());
         }
 
-        if (discount){
-            roundedPrice = roundPrice(applyPercentageDiscount(ticket.getPrice()));
-            ticket.setPrice(roundedPrice);
-        }
+        long priceInCents = calculateFareInCents(ticket.getParkingSpot().getParkingType(),
+                ticket.getInTime().getTime(), ticket.getOutTime().getTime(), discount);
+        fares.record(priceInCents);
+        ticket.setPrice(priceInCents / 100.0);
     }
 
     public void calculateFare(Ticket ticket){
         calculateFare(ticket, false);
     }
 
+    /**
+     * Fixed-point fare in cents under the current tariff, see TariffTable.priceInCents.
+     */
+    public long calculateFareInCents(ParkingType parkingType, long inTime, long outTime, boolean discount){
+        return tariffConfig.getTariffTable().priceInCents(parkingType, inTime, outTime, discount);
+    }
+
     private boolean isValidDate(Ticket ticket) {
         if( (ticket.getInTime() == null) || (ticket.getOutTime() == null) ){
             return false;
@@ -63,14 +56,10 @@ public class FareCalculatorService {
         return !ticket.getOutTime().before(ticket.getInTime());
     }
 
+    /**
+     * Rounds the exact binary value of the price half up to the cent, see TariffTable.roundToCents.
+     */
     public double roundPrice(double price) {
-        BigDecimal bd = new BigDecimal(price);
-        bd = bd.setScale(2, RoundingMode.HALF_UP);
-
-        return bd.doubleValue();
-    }
-
-    private double applyPercentageDiscount(double price) {
-        return price * (1 - (double) DISCOUNT_PERCENT / 100);
+        return TariffTable.roundToCents(price) / 100.0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.StringMapMessage;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One structured event per gate request on the GateEvents logger, for instance
+ * <pre>
+ * event="exit" plate="AB-123-CD" status="EXITED" spot="4" price="3.75" micros="812"
+ * </pre>
+ * Failed requests are always logged; the others are sampled, one in parkit.log.sample.rate
+ * (100 by default, 1 logs every request, 0 only failures).
+ */
+final class GateEventLog {
+
+    static final String SAMPLE_RATE_PROPERTY = "parkit.log.sample.rate";
+
+    private static final Logger logger = LogManager.getLogger("GateEvents");
+
+    private static final int sampleRate = Integer.getInteger(SAMPLE_RATE_PROPERTY, 100);
+
+    private GateEventLog() {
+    }
+
+    static void log(String event, String vehicleRegNumber, Enum<?> status, boolean failed, Ticket ticket, long nanos) {
+        if (!logger.isInfoEnabled() || !(failed || isSampled())) {
+            return;
+        }
+        StringMapMessage message = new StringMapMessage(8)
+                .with("event", event)
+                .with("plate", vehicleRegNumber)
+                .with("status", status.name());
+        if (ticket != null && ticket.getParkingSpot() != null) {
+            message.with("spot", ticket.getParkingSpot().getId());
+        }
+        if (ticket != null && ticket.getOutTime() != null) {
+            message.with("price", ticket.getPrice());
+        }
+        logger.info(message.with("micros", nanos / 1000));
+    }
+
+    private static boolean isSampled() {
+        return sampleRate == 1 || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+    }
+}
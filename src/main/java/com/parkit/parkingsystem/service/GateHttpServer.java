@@ -0,0 +1,311 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.Ticket;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP front-end for the gates and kiosks:
+ * <pre>
+ * POST /entry?type=CAR&amp;plate=AB-123-CD   201, the new ticket, in the lot given by lot=N (1 by default)
+ * POST /exit?plate=AB-123-CD              200, the closed ticket and its fare
+ * GET  /quote?plate=AB-123-CD             200, the fare if the vehicle left now
+ * POST /reservation?type=CAR&amp;plate=AB-123-CD&amp;from=T1&amp;to=T2
+ *                                         201, a spot booked from T1 to T2 (epoch milliseconds),
+ *                                         in the lot given by lot=N (1 by default)
+ * GET  /metrics                           200, the metrics in the Prometheus text format
+ * </pre>
+ * Requests run on a bounded pool of worker threads. When the queue is full the accepting
+ * thread runs the request itself, which stops it from accepting more until it is done.
+ */
+public class GateHttpServer {
+
+    private static final Logger logger = LogManager.getLogger("GateHttpServer");
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_WORKER_THREADS = 32;
+    private static final int QUEUE_SIZE_PER_WORKER = 8;
+
+    private final ParkingService parkingService;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+
+    public GateHttpServer(ParkingService parkingService, int port, int workerThreads) throws IOException {
+        this.parkingService = parkingService;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workerThreads * QUEUE_SIZE_PER_WORKER),
+                runnable -> new Thread(runnable, "gate-http-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(executor);
+        server.createContext("/entry", this::handleEntry);
+        server.createContext("/exit", this::handleExit);
+        server.createContext("/quote", this::handleQuote);
+        server.createContext("/reservation", this::handleReservation);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Gate HTTP server listening on port " + getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleEntry(HttpExchange exchange) throws IOException {
+        if (!checkMethod(exchange, "POST")) {
+            return;
+        }
+        Map<String, String> parameters = parseQuery(exchange);
+        String plate = parameters.get("plate");
+        ParkingType parkingType = parseParkingType(parameters.get("type"));
+        if (isBlank(plate) || parkingType == null) {
+            sendError(exchange, 400, "Parameters type (CAR or BIKE) and plate are required");
+            return;
+        }
+        int lotNumber = parseLotNumber(parameters.get("lot"));
+        if (lotNumber <= 0) {
+            sendError(exchange, 400, "Parameter lot must be a positive number");
+            return;
+        }
+        EntryResult result = parkingService.enter(lotNumber, parkingType, plate.trim(), new Date());
+        switch (result.getStatus()) {
+            case PARKED:
+                sendJson(exchange, 201, toJson(result.getTicket(), result.isRecurring()));
+                break;
+            case PARKING_FULL:
+                sendError(exchange, 409, result.getMessage());
+                break;
+            default:
+                sendError(exchange, 500, result.getMessage());
+        }
+    }
+
+    private void handleExit(HttpExchange exchange) throws IOException {
+        if (checkMethod(exchange, "POST")) {
+            handleExitResult(exchange, true);
+        }
+    }
+
+    private void handleQuote(HttpExchange exchange) throws IOException {
+        if (checkMethod(exchange, "GET")) {
+            handleExitResult(exchange, false);
+        }
+    }
+
+    private void handleReservation(HttpExchange exchange) throws IOException {
+        if (!checkMethod(exchange, "POST")) {
+            return;
+        }
+        Map<String, String> parameters = parseQuery(exchange);
+        String plate = parameters.get("plate");
+        ParkingType parkingType = parseParkingType(parameters.get("type"));
+        long from = parseTime(parameters.get("from"));
+        long to = parseTime(parameters.get("to"));
+        if (isBlank(plate) || parkingType == null || from < 0 || to <= from || to <= System.currentTimeMillis()) {
+            sendError(exchange, 400, "Parameters type (CAR or BIKE), plate, and from before to, as epoch milliseconds"
+                    + " ending in the future, are required");
+            return;
+        }
+        int lotNumber = parseLotNumber(parameters.get("lot"));
+        if (lotNumber <= 0) {
+            sendError(exchange, 400, "Parameter lot must be a positive number");
+            return;
+        }
+        Reservation reservation;
+        try {
+            reservation = parkingService.reserve(lotNumber, parkingType, plate.trim(), new Date(from), new Date(to));
+        } catch (IllegalStateException e) {
+            sendError(exchange, 503, e.getMessage());
+            return;
+        }
+        if (reservation == null) {
+            sendError(exchange, 409, "No " + parkingType + " spot free from " + from + " to " + to);
+            return;
+        }
+        sendJson(exchange, 201, toJson(reservation));
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (checkMethod(exchange, "GET")) {
+            StringBuilder text = new StringBuilder(4096);
+            MetricsRegistry.getDefault().writeText(text);
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private void handleExitResult(HttpExchange exchange, boolean exit) throws IOException {
+        String plate = parseQuery(exchange).get("plate");
+        if (isBlank(plate)) {
+            sendError(exchange, 400, "Parameter plate is required");
+            return;
+        }
+        ExitResult result = exit ? parkingService.exit(plate.trim()) : parkingService.quote(plate.trim());
+        switch (result.getStatus()) {
+            case EXITED:
+            case QUOTED:
+                sendJson(exchange, 200, toJson(result.getTicket(), result.isRecurring()));
+                break;
+            case NO_TICKET:
+                sendError(exchange, 404, result.getMessage());
+                break;
+            default:
+                sendError(exchange, 500, result.getMessage());
+        }
+    }
+
+    private boolean checkMethod(HttpExchange exchange, String method) throws IOException {
+        if (method.equals(exchange.getRequestMethod())) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", method);
+        sendError(exchange, 405, "Use " + method);
+        return false;
+    }
+
+    private static ParkingType parseParkingType(String type) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return ParkingType.valueOf(type.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int parseLotNumber(String lot) {
+        if (lot == null) {
+            return ParkingSpot.DEFAULT_LOT;
+        }
+        try {
+            return Integer.parseInt(lot.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseTime(String time) {
+        if (time == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(time.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static Map<String, String> parseQuery(HttpExchange exchange) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    static String toJson(Ticket ticket, boolean recurring) {
+        StringBuilder json = new StringBuilder(160);
+        json.append("{\"vehicleRegNumber\":");
+        appendString(json, ticket.getVehicleRegNumber());
+        if (ticket.getParkingSpot() != null) {
+            json.append(",\"parkingNumber\":").append(ticket.getParkingSpot().getId());
+            json.append(",\"parkingType\":\"").append(ticket.getParkingSpot().getParkingType()).append('"');
+        }
+        json.append(",\"inTime\":").append(ticket.getInTime() == null ? "null" : String.valueOf(ticket.getInTime().getTime()));
+        json.append(",\"outTime\":").append(ticket.getOutTime() == null ? "null" : String.valueOf(ticket.getOutTime().getTime()));
+        json.append(",\"price\":").append(ticket.getPrice());
+        json.append(",\"recurring\":").append(recurring);
+        return json.append('}').toString();
+    }
+
+    static String toJson(Reservation reservation) {
+        StringBuilder json = new StringBuilder(160);
+        json.append("{\"id\":").append(reservation.getId());
+        json.append(",\"vehicleRegNumber\":");
+        appendString(json, reservation.getVehicleRegNumber());
+        json.append(",\"parkingNumber\":").append(reservation.getParkingSpot().getId());
+        json.append(",\"parkingType\":\"").append(reservation.getParkingSpot().getParkingType()).append('"');
+        json.append(",\"lotNumber\":").append(reservation.getParkingSpot().getLotNumber());
+        json.append(",\"startTime\":").append(reservation.getStartTime().getTime());
+        json.append(",\"endTime\":").append(reservation.getEndTime().getTime());
+        return json.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message == null ? "" : message);
+        sendJson(exchange, status, json.append('}').toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -1,24 +1,35 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.TariffConfig;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
 
+    private static final long TARIFF_WATCH_PERIOD_MILLIS = 5000;
+
+    public static final String JOURNAL_FILE_PROPERTY = "parkit.journal.file";
+    private static final long JOURNAL_FLUSH_PERIOD_MILLIS = 1000;
+
     public static void loadInterface(){
         logger.info("App initialized!!!");
         System.out.println("Welcome to Parking System!");
 
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        ParkingService parkingService = createParkingService(inputReaderUtil);
 
         while(continueApp){
             loadMenu();
@@ -42,6 +53,66 @@ public class InteractiveShell {
         }
     }
 
+    /**
+     * Wires a ParkingService on the production database with the free spot index and the
+     * reservations loaded, the ticket caches warmed and the tariff file watched. Ticket
+     * writes go through a write-behind journal when the parkit.journal.file system property
+     * names one. The metrics are published over JMX.
+     */
+    public static ParkingService createParkingService(InputReaderUtil inputReaderUtil){
+        TicketDAO ticketDAO = new TicketDAO();
+        // Opened first: replaying the journal may take spots back
+        openTicketJournal(ticketDAO);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        try {
+            parkingSpotDAO.reconcileFreeSpotIndex();
+        } catch (SQLException e) {
+            logger.error("Unable to load free parking spots", e);
+        }
+        ReservationDAO reservationDAO = new ReservationDAO(parkingSpotDAO);
+        try {
+            reservationDAO.loadReservationIndex();
+        } catch (SQLException e) {
+            logger.error("Unable to load reservations", e);
+        }
+        parkingSpotDAO.setReservationDAO(reservationDAO);
+        ticketDAO.warmVisitCountCache(1000);
+        ticketDAO.loadOpenTicketCache();
+        MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+        parkingSpotDAO.registerMetrics(metricsRegistry);
+        ticketDAO.registerMetrics(metricsRegistry);
+        reservationDAO.registerMetrics(metricsRegistry);
+        metricsRegistry.registerMBean();
+        TariffConfig tariffConfig;
+        try {
+            tariffConfig = TariffConfig.load();
+            tariffConfig.watch(TARIFF_WATCH_PERIOD_MILLIS);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to load the tariff, using the default fares", e);
+            tariffConfig = new TariffConfig(TariffTable.defaultTable());
+        }
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO,
+                new FareCalculatorService(tariffConfig));
+        parkingService.setReservationDAO(reservationDAO);
+        return parkingService;
+    }
+
+    private static void openTicketJournal(TicketDAO ticketDAO){
+        String journalFile = System.getProperty(JOURNAL_FILE_PROPERTY);
+        if (journalFile == null) {
+            return;
+        }
+        try {
+            TicketJournal ticketJournal = new TicketJournal(Paths.get(journalFile), ticketDAO.dataBaseConfig);
+            ticketJournal.start(JOURNAL_FLUSH_PERIOD_MILLIS);
+            Runtime.getRuntime().addShutdownHook(new Thread(ticketJournal::close, "ticket-journal-shutdown"));
+            ticketDAO.setTicketJournal(ticketJournal);
+            logger.info("Writing tickets through journal " + journalFile);
+        } catch (IOException | SQLException e) {
+            logger.error("Unable to open ticket journal " + journalFile + ", writing tickets directly", e);
+        }
+    }
+
     private static void loadMenu(){
         System.out.println("Please select an option. Simply enter the number to choose an action");
         System.out.println("1 New Vehicle Entering - Allocate Parking Space");
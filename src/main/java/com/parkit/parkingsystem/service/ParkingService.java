@@ -1,9 +1,17 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Histogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
@@ -11,45 +19,246 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.Date;
 
+/**
+ * Entry, exit and fare quote of vehicles. enter, exit and quote take their input as arguments
+ * and report through a result object so any front-end can drive them concurrently; the
+ * process* methods are the console adapter used by the interactive shell.
+ */
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final Histogram entryLatency = MetricsRegistry.getDefault().timer("gate_entry_seconds");
+    private static final Histogram exitLatency = MetricsRegistry.getDefault().timer("gate_exit_seconds");
+    private static final Counter[] entryOutcomes = new Counter[EntryResult.Status.values().length];
+    private static final Counter[] exitOutcomes = new Counter[ExitResult.Status.values().length];
+
+    static {
+        for (EntryResult.Status status : EntryResult.Status.values()) {
+            entryOutcomes[status.ordinal()] = MetricsRegistry.getDefault()
+                    .counter("gate_entries_total", "status", status.name());
+        }
+        for (ExitResult.Status status : ExitResult.Status.values()) {
+            exitOutcomes[status.ordinal()] = MetricsRegistry.getDefault()
+                    .counter("gate_exits_total", "status", status.name());
+        }
+    }
 
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private  TicketDAO ticketDAO;
+    private FareCalculatorService fareCalculatorService;
+    private ReservationDAO reservationDAO;
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, new FareCalculatorService());
+    }
+
+    /**
+     * Headless service, for front-ends calling enter, exit and quote only.
+     */
+    public ParkingService(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, FareCalculatorService fareCalculatorService){
+        this(null, parkingSpotDAO, ticketDAO, fareCalculatorService);
+    }
+
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO,
+                          FareCalculatorService fareCalculatorService){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    /**
+     * Gives vehicles arriving with a reservation their reserved spot, and takes bookings.
+     */
+    public void setReservationDAO(ReservationDAO reservationDAO) {
+        this.reservationDAO = reservationDAO;
+    }
+
+    /**
+     * Books a spot of the given type in the lot for the window [startTime, endTime). Returns
+     * the reservation, or null when no spot is free for the whole window.
+     */
+    public Reservation reserve(int lotNumber, ParkingType parkingType, String vehicleRegNumber, Date startTime, Date endTime) {
+        if(reservationDAO == null){
+            throw new IllegalStateException("Reservations are not enabled");
+        }
+        return reservationDAO.reserve(lotNumber, parkingType, vehicleRegNumber, startTime, endTime);
+    }
+
+    /**
+     * Claims the lowest free spot of the given type and saves the ticket in a single
+     * transaction.
+     */
+    public EntryResult enter(ParkingType parkingType, String vehicleRegNumber) {
+        return enter(parkingType, vehicleRegNumber, new Date());
+    }
+
+    /**
+     * Entry recorded at the given time, for replays of past gate events.
+     */
+    public EntryResult enter(ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        return enter(ParkingSpot.DEFAULT_LOT, parkingType, vehicleRegNumber, inTime);
+    }
+
+    /**
+     * Entry through a gate of the given lot, parking on its lowest level with a free spot, or
+     * on the spot reserved for the vehicle.
+     */
+    public EntryResult enter(int lotNumber, ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        long start = System.nanoTime();
+        EntryResult result = doEnter(lotNumber, parkingType, vehicleRegNumber, inTime);
+        long nanos = System.nanoTime() - start;
+        entryLatency.record(nanos);
+        GateEventLog.log("entry", vehicleRegNumber, result.getStatus(), result.getStatus() == EntryResult.Status.FAILED,
+                result.getTicket(), nanos);
+        entryOutcomes[result.getStatus().ordinal()].increment();
+        return result;
+    }
+
+    private EntryResult doEnter(int lotNumber, ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        try{
+            Reservation reservation = getReservation(lotNumber, parkingType, vehicleRegNumber, inTime);
+            Ticket ticket = UnitOfWork.execute(() -> {
+                ParkingSpot parkingSpot = reservation == null ? null : parkingSpotDAO.claimSlot(reservation.getParkingSpot());
+                if(parkingSpot == null){
+                    // Still taken by an earlier vehicle, any other free spot does
+                    parkingSpot = parkingSpotDAO.claimNextAvailableSlot(lotNumber, parkingType);
+                }
+                if(parkingSpot == null){
+                    return null;
+                }
+                if(reservation != null && !reservationDAO.useReservation(reservation)){
+                    throw new IllegalStateException("Unable to use reservation " + reservation.getId() + " of vehicle number:" + vehicleRegNumber);
+                }
+
+                Ticket newTicket = new Ticket();
+                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                newTicket.setParkingSpot(parkingSpot);
+                newTicket.setVehicleRegNumber(vehicleRegNumber);
+                newTicket.setPrice(0);
+                newTicket.setInTime(inTime);
+                newTicket.setOutTime(null);
+                if(!ticketDAO.saveTicket(newTicket)){
+                    throw new IllegalStateException("Unable to save ticket for vehicle number:" + vehicleRegNumber);
+                }
+                return newTicket;
+            });
+
+            if(ticket == null){
+                return EntryResult.parkingFull("Error claiming parking number from DB. Parking slots might be full");
+            }
+            return EntryResult.parked(ticket, ticketDAO.getNbTicket(vehicleRegNumber) > 1);
+        }catch(Exception e){
+            logger.error("Unable to process incoming vehicle",e);
+            return EntryResult.failed("Unable to process incoming vehicle");
+        }
+    }
+
+    private Reservation getReservation(int lotNumber, ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        if(reservationDAO == null){
+            return null;
+        }
+        Reservation reservation = reservationDAO.getReservation(vehicleRegNumber, lotNumber, inTime);
+        return reservation != null && reservation.getParkingSpot().getParkingType() == parkingType ? reservation : null;
+    }
+
+    /**
+     * Closes the open ticket of the vehicle and frees its spot in a single transaction.
+     */
+    public ExitResult exit(String vehicleRegNumber) {
+        return exit(vehicleRegNumber, new Date());
+    }
+
+    /**
+     * Exit recorded at the given time, for replays of past gate events.
+     */
+    public ExitResult exit(String vehicleRegNumber, Date outTime) {
+        long start = System.nanoTime();
+        ExitResult result = doExit(vehicleRegNumber, outTime);
+        long nanos = System.nanoTime() - start;
+        exitLatency.record(nanos);
+        GateEventLog.log("exit", vehicleRegNumber, result.getStatus(), result.getStatus() == ExitResult.Status.FAILED,
+                result.getTicket(), nanos);
+        exitOutcomes[result.getStatus().ordinal()].increment();
+        return result;
+    }
+
+    private ExitResult doExit(String vehicleRegNumber, Date outTime) {
+        try{
+            return UnitOfWork.execute(() -> {
+                Ticket exitTicket = ticketDAO.getTicket(vehicleRegNumber);
+                if(!isOpen(exitTicket)){
+                    return ExitResult.noTicket("No vehicle parked with number:" + vehicleRegNumber);
+                }
+                exitTicket.setOutTime(outTime);
+                boolean recurring = ticketDAO.getNbTicket(exitTicket.getVehicleRegNumber()) > 1;
+
+                fareCalculatorService.calculateFare(exitTicket, recurring);
+
+                int updated = ticketDAO.updateTicket(exitTicket);
+                if(updated == 0) {
+                    // Closed by a concurrent exit of the same vehicle, which also frees the spot
+                    return ExitResult.noTicket("No vehicle parked with number:" + vehicleRegNumber);
+                }
+                if(updated < 0) {
+                    return ExitResult.failed("Unable to update ticket information");
+                }
+                ParkingSpot parkingSpot = exitTicket.getParkingSpot();
+                if (parkingSpot != null && parkingSpot.getId() > 0){
+                    parkingSpot.setAvailable(true);
+                    if(!parkingSpotDAO.updateParking(parkingSpot)){
+                        throw new IllegalStateException("Unable to free parking spot number:" + parkingSpot.getId());
+                    }
+                }
+                return ExitResult.exited(exitTicket, recurring);
+            });
+        }catch(Exception e){
+            logger.error("Unable to process exiting vehicle",e);
+            return ExitResult.failed("Unable to process exiting vehicle");
+        }
+    }
+
+    /**
+     * Prices the open ticket of the vehicle as if it left now, without closing it.
+     */
+    public ExitResult quote(String vehicleRegNumber) {
+        try{
+            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if(!isOpen(ticket)){
+                return ExitResult.noTicket("No vehicle parked with number:" + vehicleRegNumber);
+            }
+            ticket.setOutTime(new Date());
+            boolean recurring = ticketDAO.getNbTicket(ticket.getVehicleRegNumber()) > 1;
+            fareCalculatorService.calculateFare(ticket, recurring);
+            return ExitResult.quoted(ticket, recurring);
+        }catch(Exception e){
+            logger.error("Unable to quote parking fare",e);
+            return ExitResult.failed("Unable to quote parking fare");
+        }
+    }
+
+    private static boolean isOpen(Ticket ticket) {
+        return ticket != null && ticket.getOutTime() == null;
     }
 
     public void processIncomingVehicle() {
         try{
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            int nbrTicket = 0;
-            if(parkingSpot !=null && parkingSpot.getId() > 0){
+            ParkingSpot availableSpot = getNextParkingNumberIfAvailable();
+            if(availableSpot !=null && availableSpot.getId() > 0){
                 String vehicleRegNumber = getVehichleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
+                EntryResult result = enter(availableSpot.getParkingType(), vehicleRegNumber);
+                if(!result.isParked()){
+                    logger.error(result.getMessage());
+                    return;
+                }
 
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
+                Ticket ticket = result.getTicket();
                 System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
-                nbrTicket = ticketDAO.getNbTicket(ticket.getVehicleRegNumber());
-                if(nbrTicket > 1) {
+                System.out.println("Please park your vehicle in spot number:"+ticket.getParkingSpot().getId());
+                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+ticket.getInTime());
+                if(result.isRecurring()) {
                     System.out.println("Good to see you again!");
                     System.out.println("As a regular user of our parking lot, you will get a 5% discount.");
                 }
@@ -59,6 +268,27 @@ public class ParkingService {
         }
     }
 
+    public void processExitingVehicle() {
+        try{
+            String vehicleRegNumber = getVehichleRegNumber();
+            ExitResult result = exit(vehicleRegNumber);
+
+            if(result.isSuccess()){
+                Ticket ticket = result.getTicket();
+                System.out.println("Please pay the parking fare:" + ticket.getPrice());
+                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
+            } else if(result.getStatus() == ExitResult.Status.NO_TICKET){
+                System.out.println(result.getMessage());
+                logger.info(result.getMessage());
+            } else {
+                System.out.println("Unable to update ticket information. Error occurred");
+                logger.info("Unable to update ticket information. Error occurred");
+            }
+        }catch(Exception e){
+            logger.error("Unable to process exiting vehicle",e);
+        }
+    }
+
     private String getVehichleRegNumber() throws Exception {
         System.out.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
@@ -101,34 +331,4 @@ public class ParkingService {
             }
         }
     }
-
-    public void processExitingVehicle() {
-        try{
-            String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
-            int nbrTicket = ticketDAO.getNbTicket(ticket.getVehicleRegNumber());
-
-            fareCalculatorService.calculateFare(ticket, nbrTicket > 1);
-
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-
-                if (parkingSpot != null && parkingSpot.getId() > 0){
-                    parkingSpot.setAvailable(true);
-                    parkingSpotDAO.updateParking(parkingSpot);
-                    System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                    System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
-                } else {
-                    logger.info("Unable to update ticket information. No parking spots available");
-                }
-            }else{
-                System.out.println("Unable to update ticket information. Error occurred");
-                logger.info("Unable to update ticket information. Error occurred");
-            }
-        }catch(Exception e){
-            logger.error("Unable to process exiting vehicle",e);
-        }
-    }
 }
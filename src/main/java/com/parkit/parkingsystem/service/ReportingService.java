@@ -0,0 +1,241 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+/**
+ * Revenue, stays, peak occupancy and recurring customers over a period, for management
+ * reports. Tickets are streamed from the database through a cursor and folded into the report
+ * one at a time, so a report over years of tickets holds a counter per day and the vehicles
+ * parked at a time, never the tickets themselves.
+ */
+public class ReportingService {
+
+    private static final Logger logger = LogManager.getLogger("ReportingService");
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final TicketDAO ticketDAO;
+    private final ZoneId zoneId;
+    private final int fetchSize;
+
+    public ReportingService(TicketDAO ticketDAO) {
+        this(ticketDAO, ZoneId.systemDefault(), DEFAULT_FETCH_SIZE);
+    }
+
+    public ReportingService(TicketDAO ticketDAO, ZoneId zoneId, int fetchSize) {
+        this.ticketDAO = ticketDAO;
+        this.zoneId = zoneId;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Reports on [from, to): revenue and stays of the tickets closed in the period, by day of
+     * exit, recurring share of the vehicles that entered in it and the most vehicles parked at
+     * once, counting those already parked at from.
+     */
+    public Report report(Date from, Date to) {
+        long start = System.nanoTime();
+        Report report = new Report(from.getTime(), to.getTime(), zoneId);
+        if (!ticketDAO.streamTickets(from, to, fetchSize, report::add)) {
+            throw new IllegalStateException("Unable to read the tickets from " + from + " to " + to);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        logger.info("Reported on " + report.tickets + " tickets in " + report.elapsedNanos / 1000000 + " ms");
+        return report;
+    }
+
+    /**
+     * Aggregates of a period, fed one ticket at a time in entry order. Tickets can come from
+     * the database or from the gates as they close.
+     */
+    public static class Report {
+        private static final int PARKING_TYPES = ParkingType.values().length;
+
+        private final long from;
+        private final long to;
+        private final ZoneId zoneId;
+
+        private final TreeMap<LocalDate, long[]> revenueByDay = new TreeMap<>();
+        private final long[] revenueInCents = new long[PARKING_TYPES];
+        private final long[] closedTickets = new long[PARKING_TYPES];
+        private final long[] stayMillis = new long[PARKING_TYPES];
+        private long tickets;
+        private long entries;
+        private long recurringEntries;
+
+        // Min-heap of the out times of the vehicles parked at the time of the last entry
+        private long[] parkedUntil = new long[64];
+        private int parked;
+        private int peakOccupancy;
+        private long peakTime;
+
+        // Bounds of the last day a revenue went to, most exits of a chunk falling on the same day
+        private long dayStart = Long.MAX_VALUE;
+        private long dayEnd = Long.MIN_VALUE;
+        private long[] dayRevenue;
+
+        private long elapsedNanos;
+
+        public Report(long from, long to, ZoneId zoneId) {
+            this.from = from;
+            this.to = to;
+            this.zoneId = zoneId;
+        }
+
+        /**
+         * Adds a ticket. Tickets must come in entry order; outTime is -1 while the vehicle is
+         * parked.
+         */
+        public void add(ParkingType parkingType, long inTime, long outTime, long priceInCents, boolean recurring) {
+            tickets++;
+            long time = Math.max(inTime, from);
+            while (parked > 0 && parkedUntil[0] <= time) {
+                removeFirstParked();
+            }
+            if (outTime < 0 || outTime > time) {
+                addParked(outTime < 0 ? Long.MAX_VALUE : outTime);
+            }
+            if (parked > peakOccupancy) {
+                peakOccupancy = parked;
+                peakTime = time;
+            }
+
+            if (inTime >= from) {
+                entries++;
+                if (recurring) {
+                    recurringEntries++;
+                }
+            }
+            if (outTime >= from && outTime < to) {
+                int type = parkingType.ordinal();
+                closedTickets[type]++;
+                stayMillis[type] += outTime - inTime;
+                revenueInCents[type] += priceInCents;
+                revenueOfDay(outTime)[type] += priceInCents;
+            }
+        }
+
+        private long[] revenueOfDay(long time) {
+            if (time < dayStart || time >= dayEnd) {
+                LocalDate day = Instant.ofEpochMilli(time).atZone(zoneId).toLocalDate();
+                dayStart = day.atStartOfDay(zoneId).toInstant().toEpochMilli();
+                dayEnd = day.plusDays(1).atStartOfDay(zoneId).toInstant().toEpochMilli();
+                dayRevenue = revenueByDay.computeIfAbsent(day, d -> new long[PARKING_TYPES]);
+            }
+            return dayRevenue;
+        }
+
+        private void addParked(long until) {
+            if (parked == parkedUntil.length) {
+                parkedUntil = Arrays.copyOf(parkedUntil, parked * 2);
+            }
+            int i = parked++;
+            while (i > 0 && parkedUntil[(i - 1) / 2] > until) {
+                parkedUntil[i] = parkedUntil[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            parkedUntil[i] = until;
+        }
+
+        private void removeFirstParked() {
+            long last = parkedUntil[--parked];
+            int i = 0;
+            while (2 * i + 1 < parked) {
+                int child = 2 * i + 1;
+                if (child + 1 < parked && parkedUntil[child + 1] < parkedUntil[child]) {
+                    child++;
+                }
+                if (parkedUntil[child] >= last) {
+                    break;
+                }
+                parkedUntil[i] = parkedUntil[child];
+                i = child;
+            }
+            parkedUntil[i] = last;
+        }
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getClosedTickets() {
+            return sum(closedTickets);
+        }
+
+        public long getRevenueInCents() {
+            return sum(revenueInCents);
+        }
+
+        public long getRevenueInCents(ParkingType parkingType) {
+            return revenueInCents[parkingType.ordinal()];
+        }
+
+        /**
+         * Days with at least one exit, in order.
+         */
+        public SortedSet<LocalDate> getDays() {
+            return Collections.unmodifiableSortedSet(revenueByDay.navigableKeySet());
+        }
+
+        public long getRevenueInCents(LocalDate day, ParkingType parkingType) {
+            long[] revenue = revenueByDay.get(day);
+            return revenue == null ? 0 : revenue[parkingType.ordinal()];
+        }
+
+        public long getAverageStayMillis() {
+            long closed = getClosedTickets();
+            return closed == 0 ? 0 : sum(stayMillis) / closed;
+        }
+
+        public long getAverageStayMillis(ParkingType parkingType) {
+            int type = parkingType.ordinal();
+            return closedTickets[type] == 0 ? 0 : stayMillis[type] / closedTickets[type];
+        }
+
+        public int getPeakOccupancy() {
+            return peakOccupancy;
+        }
+
+        /**
+         * When the peak occupancy was first reached, 0 if nothing was parked.
+         */
+        public long getPeakTime() {
+            return peakTime;
+        }
+
+        /**
+         * Share of the entries of the period made by vehicles seen before, between 0 and 1.
+         */
+        public double getRecurringShare() {
+            return entries == 0 ? 0 : (double) recurringEntries / entries;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        private static long sum(long[] values) {
+            long total = 0;
+            for (long value : values) {
+                total += value;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/**
+ * Tariff compiled from its properties into per parking type arrays indexed by the type
+ * ordinal. Each type gets the rate of every minute of the day and the running sum of those
+ * rates, so pricing a stay is two array lookups whatever the number of time-of-day bands.
+ *
+ * Properties, rates in currency units:
+ * <pre>
+ * free.minutes=30
+ * recurring.discount.percent=5
+ * CAR.rate.per.hour=1.50
+ * CAR.bands=19:00-07:00=1.00,12:00-14:00=2.00
+ * CAR.daily.cap=20.00
+ * </pre>
+ * Bands override the hourly rate and may wrap around midnight. The daily cap applies to each
+ * 24 hours parked.
+ * <p>
+ * A type without bands is priced as fares always were: the hours parked times the hourly rate
+ * and the discount factor, in double arithmetic, each rounded half up to the cent from its
+ * exact binary value. So 1.50 with 5% off is 1.4249999... and gives 1.42, not 1.43.
+ */
+public class TariffTable {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long MILLIS_PER_MINUTE = 60000;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = MINUTES_PER_DAY * MILLIS_PER_MINUTE;
+    private static final long NO_CAP = -1;
+    private static final long NOT_FLAT = -1;
+
+    // Above this many cents a double no longer has the precision to tell a tie from its neighbours
+    private static final double MAX_FAST_ROUNDING_CENTS = 1e9;
+    private static final double TIE_TOLERANCE = 1e-6;
+
+    private final long freeMillis;
+    private final int discountPercent;
+    private final TimeZone timeZone;
+
+    // Indexed by ParkingType ordinal, then by minute of the day. Sums are in cent-milliseconds
+    // per hour, so a rate of 150 cents charged for one millisecond adds 150.
+    private final long[][] minuteRates;
+    private final long[][] minuteSums;
+    private final long[] dailyCaps;
+    // Indexed by ParkingType ordinal: the rate in cents when the same all day long, else NOT_FLAT
+    private final long[] flatRates;
+
+    private TariffTable(long freeMillis, int discountPercent, TimeZone timeZone,
+                        long[][] minuteRates, long[] dailyCaps) {
+        this.freeMillis = freeMillis;
+        this.discountPercent = discountPercent;
+        this.timeZone = timeZone;
+        this.minuteRates = minuteRates;
+        this.dailyCaps = dailyCaps;
+        this.minuteSums = new long[minuteRates.length][];
+        this.flatRates = new long[minuteRates.length];
+        for (int type = 0; type < minuteRates.length; type++) {
+            long[] sums = new long[MINUTES_PER_DAY + 1];
+            for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                sums[minute + 1] = sums[minute] + minuteRates[type][minute] * MILLIS_PER_MINUTE;
+            }
+            minuteSums[type] = sums;
+            long rate = minuteRates[type][0];
+            flatRates[type] = Arrays.stream(minuteRates[type]).allMatch(r -> r == rate) ? rate : NOT_FLAT;
+        }
+    }
+
+    /**
+     * The historical tariff built from the Fare constants: flat hourly rates, no cap, the
+     * first 30 minutes free and 5% off for recurring users.
+     */
+    public static TariffTable defaultTable() {
+        Properties properties = new Properties();
+        properties.setProperty("free.minutes", "30");
+        properties.setProperty("recurring.discount.percent", "5");
+        properties.setProperty(ParkingType.CAR + ".rate.per.hour", String.valueOf(Fare.CAR_RATE_PER_HOUR));
+        properties.setProperty(ParkingType.BIKE + ".rate.per.hour", String.valueOf(Fare.BIKE_RATE_PER_HOUR));
+        return compile(properties);
+    }
+
+    public static TariffTable compile(Properties properties) {
+        return compile(properties, TimeZone.getDefault());
+    }
+
+    public static TariffTable compile(Properties properties, TimeZone timeZone) {
+        long freeMillis = Long.parseLong(properties.getProperty("free.minutes", "0").trim()) * MILLIS_PER_MINUTE;
+        int discountPercent = Integer.parseInt(properties.getProperty("recurring.discount.percent", "0").trim());
+        if (freeMillis < 0 || discountPercent < 0 || discountPercent > 100) {
+            throw new IllegalArgumentException("Invalid free minutes or discount percent");
+        }
+
+        ParkingType[] types = ParkingType.values();
+        long[][] minuteRates = new long[types.length][];
+        long[] dailyCaps = new long[types.length];
+        for (ParkingType type : types) {
+            String rate = properties.getProperty(type + ".rate.per.hour");
+            if (rate == null) {
+                throw new IllegalArgumentException("Missing hourly rate for " + type);
+            }
+            long[] rates = new long[MINUTES_PER_DAY];
+            Arrays.fill(rates, toCents(rate));
+
+            String bands = properties.getProperty(type + ".bands");
+            if (bands != null && !bands.trim().isEmpty()) {
+                for (String band : bands.split(",")) {
+                    applyBand(rates, band.trim());
+                }
+            }
+            minuteRates[type.ordinal()] = rates;
+
+            String cap = properties.getProperty(type + ".daily.cap");
+            dailyCaps[type.ordinal()] = (cap == null || cap.trim().isEmpty()) ? NO_CAP : toCents(cap);
+        }
+        return new TariffTable(freeMillis, discountPercent, timeZone, minuteRates, dailyCaps);
+    }
+
+    /**
+     * Fare in cents of a stay, rounded half up to the cent, then the recurring discount
+     * rounded half up again, see the class comment. Time-of-day bands are located with the UTC
+     * offset in force at entry, so a stay across a daylight saving change keeps its exact
+     * duration.
+     */
+    public long priceInCents(ParkingType parkingType, long inTime, long outTime, boolean discount) {
+        long duration = outTime - inTime;
+        if (duration < freeMillis) {
+            return 0;
+        }
+
+        int type = parkingType.ordinal();
+        long offset = timeZone.getOffset(inTime);
+        long localIn = inTime + offset;
+
+        long price;
+        long cap = dailyCaps[type];
+        if (cap == NO_CAP) {
+            price = price(type, localIn, localIn + duration);
+        } else {
+            long fullDays = duration / MILLIS_PER_DAY;
+            long dayPrice = Math.min(cap, divideHalfUp(minuteSums[type][MINUTES_PER_DAY], MILLIS_PER_HOUR));
+            long remainderStart = localIn + fullDays * MILLIS_PER_DAY;
+            long remainderPrice = price(type, remainderStart, localIn + duration);
+            price = fullDays * dayPrice + Math.min(cap, remainderPrice);
+        }
+
+        if (discount) {
+            price = roundToCents(price / 100.0 * (1 - (double) discountPercent / 100));
+        }
+        return price;
+    }
+
+    /**
+     * Rounds the exact binary value of an amount half up to the cent. Only values within a
+     * hair of a half cent need the exact decimal expansion of BigDecimal.
+     */
+    public static long roundToCents(double amount) {
+        double cents = amount * 100;
+        if (cents >= 0 && cents < MAX_FAST_ROUNDING_CENTS) {
+            double floor = Math.floor(cents);
+            double fraction = cents - floor;
+            if (Math.abs(fraction - 0.5) > TIE_TOLERANCE) {
+                return (long) (fraction > 0.5 ? floor + 1 : floor);
+            }
+        }
+        return new BigDecimal(amount).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    public long getFreeMillis() {
+        return freeMillis;
+    }
+
+    public int getDiscountPercent() {
+        return discountPercent;
+    }
+
+    public long getRatePerHourInCents(ParkingType parkingType, int minuteOfDay) {
+        return minuteRates[parkingType.ordinal()][minuteOfDay];
+    }
+
+    private long price(int type, long localFrom, long localTo) {
+        long flatRate = flatRates[type];
+        if (flatRate != NOT_FLAT) {
+            return roundToCents((localTo - localFrom) / (double) MILLIS_PER_HOUR * (flatRate / 100.0));
+        }
+        return divideHalfUp(rateIntegral(type, localFrom, localTo), MILLIS_PER_HOUR);
+    }
+
+    private long rateIntegral(int type, long localFrom, long localTo) {
+        return rateSince(type, localTo) - rateSince(type, localFrom);
+    }
+
+    // Cent-milliseconds per hour accrued from the local epoch to the given local time
+    private long rateSince(int type, long localTime) {
+        long day = Math.floorDiv(localTime, MILLIS_PER_DAY);
+        long timeOfDay = Math.floorMod(localTime, MILLIS_PER_DAY);
+        int minute = (int) (timeOfDay / MILLIS_PER_MINUTE);
+        long[] sums = minuteSums[type];
+        return day * sums[MINUTES_PER_DAY] + sums[minute]
+                + (timeOfDay - minute * MILLIS_PER_MINUTE) * minuteRates[type][minute];
+    }
+
+    private static void applyBand(long[] rates, String band) {
+        int rateSeparator = band.indexOf('=');
+        int rangeSeparator = band.indexOf('-');
+        if (rateSeparator < 0 || rangeSeparator < 0 || rangeSeparator > rateSeparator) {
+            throw new IllegalArgumentException("Invalid tariff band: " + band);
+        }
+        int start = toMinuteOfDay(band.substring(0, rangeSeparator));
+        int end = toMinuteOfDay(band.substring(rangeSeparator + 1, rateSeparator));
+        long rate = toCents(band.substring(rateSeparator + 1));
+        if (start == MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Invalid tariff band: " + band);
+        }
+        int length = end > start ? end - start : end + MINUTES_PER_DAY - start;
+        for (int i = 0; i < length; i++) {
+            rates[(start + i) % MINUTES_PER_DAY] = rate;
+        }
+    }
+
+    private static int toMinuteOfDay(String time) {
+        String[] parts = time.trim().split(":");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid time of day: " + time);
+        }
+        int minute = Integer.parseInt(parts[0]) * 60 + Integer.parseInt(parts[1]);
+        if (minute < 0 || minute > MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Invalid time of day: " + time);
+        }
+        return minute;
+    }
+
+    private static long toCents(String amount) {
+        return new BigDecimal(amount.trim()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        return (dividend + divisor / 2) / divisor;
+    }
+}
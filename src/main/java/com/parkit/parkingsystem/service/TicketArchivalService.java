@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the ticket table small by moving the tickets closed before a horizon to the archive
+ * table. Tickets are moved in batches, each in its own transaction, so the job never holds
+ * many rows locked and can be stopped and restarted at any time. The archived visits of each
+ * vehicle are kept as a count, so recurring customers still get their discount.
+ */
+public class TicketArchivalService {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchivalService");
+
+    public static final int DEFAULT_HORIZON_DAYS = 90;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final TicketDAO ticketDAO;
+    private final int batchSize;
+
+    public TicketArchivalService(TicketDAO ticketDAO) {
+        this(ticketDAO, DEFAULT_BATCH_SIZE);
+    }
+
+    public TicketArchivalService(TicketDAO ticketDAO, int batchSize) {
+        this.ticketDAO = ticketDAO;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Archives the tickets closed more than horizonDays ago.
+     */
+    public Report archiveOlderThan(int horizonDays) throws Exception {
+        return archive(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(horizonDays)));
+    }
+
+    /**
+     * Archives the tickets closed before the given time.
+     */
+    public Report archive(Date before) throws Exception {
+        long start = System.nanoTime();
+        Report report = new Report();
+        while (true) {
+            int archived = UnitOfWork.execute(() -> {
+                int count = ticketDAO.archiveClosedTickets(before, batchSize);
+                if (count < 0) {
+                    throw new IllegalStateException("Unable to archive tickets closed before " + before);
+                }
+                return count;
+            });
+            report.tickets += archived;
+            if (archived > 0) {
+                report.batches++;
+            }
+            if (archived < batchSize) {
+                break;
+            }
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        logger.info("Archived " + report.tickets + " tickets closed before " + before + " in " + report.batches
+                + " batches, " + Math.round(report.getTicketsPerSecond()) + " tickets/s");
+        return report;
+    }
+
+    public static class Report {
+        private long tickets;
+        private long batches;
+        private long elapsedNanos;
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getTicketsPerSecond() {
+            return elapsedNanos == 0 ? 0 : tickets * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.export.TicketColumnWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+
+/**
+ * Dumps closed tickets, archived or not, to a columnar file for the analysts, who then work
+ * on the file with {@link com.parkit.parkingsystem.export.TicketColumnReader} instead of
+ * reading the ticket table row by row. Tickets are streamed from the database into the
+ * writer a block at a time.
+ */
+public class TicketExportService {
+
+    private static final Logger logger = LogManager.getLogger("TicketExportService");
+
+    private final TicketDAO ticketDAO;
+    private final int blockSize;
+
+    public TicketExportService(TicketDAO ticketDAO) {
+        this(ticketDAO, TicketColumnWriter.DEFAULT_BLOCK_SIZE);
+    }
+
+    public TicketExportService(TicketDAO ticketDAO, int blockSize) {
+        this.ticketDAO = ticketDAO;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Writes the closed tickets entered in [from, to) to the file and returns their number.
+     * The file is written under a temporary name and only replaces the target once complete.
+     */
+    public long export(Date from, Date to, Path file) throws IOException {
+        long start = System.nanoTime();
+        Path partFile = file.resolveSibling(file.getFileName() + ".part");
+        long tickets;
+        int plates;
+        try {
+            try (TicketColumnWriter writer = new TicketColumnWriter(partFile, blockSize)) {
+                boolean read = ticketDAO.streamClosedTickets(from, to, blockSize,
+                        (parkingNumber, vehicleRegNumber, parkingType, inTime, outTime, priceInCents) -> {
+                            try {
+                                writer.write(parkingNumber, vehicleRegNumber, parkingType, inTime, outTime, priceInCents);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                if (!read) {
+                    throw new IOException("Unable to read the tickets from " + from + " to " + to);
+                }
+                tickets = writer.getTickets();
+                plates = writer.getPlates();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        logger.info("Exported " + tickets + " tickets of " + plates + " vehicles to " + file + " ("
+                + Files.size(file) + " bytes) in " + elapsedMillis + " ms");
+        return tickets;
+    }
+}
@@ -0,0 +1,135 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.stream.IntStream;
+
+/**
+ * Re-runs the fare calculation over closed tickets, for audits or to simulate a tariff change.
+ * Tickets are read in id ordered chunks, priced in parallel, and the changed prices of each
+ * chunk are written with one JDBC batch and committed before the next chunk is read.
+ */
+public class TicketRepricingService {
+
+    private static final Logger logger = LogManager.getLogger("TicketRepricingService");
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final TicketDAO ticketDAO;
+    private final FareCalculatorService fareCalculatorService;
+    private final int chunkSize;
+
+    public TicketRepricingService(TicketDAO ticketDAO, FareCalculatorService fareCalculatorService) {
+        this(ticketDAO, fareCalculatorService, DEFAULT_CHUNK_SIZE);
+    }
+
+    public TicketRepricingService(TicketDAO ticketDAO, FareCalculatorService fareCalculatorService, int chunkSize) {
+        this.ticketDAO = ticketDAO;
+        this.fareCalculatorService = fareCalculatorService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reprices every ticket closed in [from, to). With dryRun the new prices are only
+     * totalled in the report and nothing is written.
+     */
+    public Report reprice(Date from, Date to, boolean dryRun) throws Exception {
+        long start = System.nanoTime();
+        Report report = new Report();
+        ClosedTicketBatch batch = new ClosedTicketBatch(chunkSize);
+        long[] newPrices = new long[chunkSize];
+        int[] changedIds = new int[chunkSize];
+        long[] changedPrices = new long[chunkSize];
+
+        int lastId = 0;
+        while (true) {
+            if (!ticketDAO.getClosedTickets(lastId, from, to, batch)) {
+                throw new IllegalStateException("Unable to read closed tickets after id " + lastId);
+            }
+            int size = batch.size();
+            if (size == 0) {
+                break;
+            }
+
+            IntStream.range(0, size).parallel().forEach(i -> newPrices[i] = fareCalculatorService.calculateFareInCents(
+                    batch.getParkingType(i), batch.getInTime(i), batch.getOutTime(i), batch.isRecurring(i)));
+
+            int changed = 0;
+            for (int i = 0; i < size; i++) {
+                report.oldRevenueInCents += batch.getPriceInCents(i);
+                report.newRevenueInCents += newPrices[i];
+                if (newPrices[i] != batch.getPriceInCents(i)) {
+                    changedIds[changed] = batch.getId(i);
+                    changedPrices[changed] = newPrices[i];
+                    changed++;
+                }
+            }
+
+            if (!dryRun && changed > 0) {
+                int count = changed;
+                UnitOfWork.execute(() -> {
+                    if (!ticketDAO.updateTicketPrices(changedIds, changedPrices, count)) {
+                        throw new IllegalStateException("Unable to update ticket prices");
+                    }
+                    return null;
+                });
+            }
+
+            report.tickets += size;
+            report.changedTickets += changed;
+            report.chunks++;
+            lastId = batch.getLastId();
+            if (!batch.isFull()) {
+                break;
+            }
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        logger.info("Repriced " + report.tickets + " tickets in " + report.chunks + " chunks, "
+                + report.changedTickets + " changed, " + Math.round(report.getTicketsPerSecond()) + " tickets/s"
+                + (dryRun ? " (dry run)" : ""));
+        return report;
+    }
+
+    public static class Report {
+        private long tickets;
+        private long changedTickets;
+        private long chunks;
+        private long oldRevenueInCents;
+        private long newRevenueInCents;
+        private long elapsedNanos;
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        public long getChangedTickets() {
+            return changedTickets;
+        }
+
+        public long getChunks() {
+            return chunks;
+        }
+
+        public long getOldRevenueInCents() {
+            return oldRevenueInCents;
+        }
+
+        public long getNewRevenueInCents() {
+            return newRevenueInCents;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getTicketsPerSecond() {
+            return elapsedNanos == 0 ? 0 : tickets * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/* GET_TICKET and GET_NB_TICKET look tickets up by plate, latest IN_TIME first */
+create index TICKET_VEHICLE_IN_TIME_IDX on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+
+/* Open tickets (OUT_TIME is null). MySQL has no partial index, NULLs are indexed and range scanned instead */
+create index TICKET_OPEN_IDX on ticket(OUT_TIME, VEHICLE_REG_NUMBER);
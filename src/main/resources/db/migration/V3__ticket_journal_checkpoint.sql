@@ -0,0 +1,4 @@
+/* Sequence of the last ticket journal record written to the database, updated in the same transaction as the records */
+create table journal_checkpoint(ID int PRIMARY KEY, LAST_SEQUENCE bigint NOT NULL);
+
+insert into journal_checkpoint(ID, LAST_SEQUENCE) values(1, 0);
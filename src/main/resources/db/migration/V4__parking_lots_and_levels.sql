@@ -0,0 +1,6 @@
+/* Spots belong to a level of a lot. PARKING_NUMBER stays unique across all lots, tickets still reference it alone */
+alter table parking add column LOT_NUMBER int NOT NULL default 1;
+alter table parking add column LEVEL_NUMBER int NOT NULL default 0;
+
+/* GET_NEXT_PARKING_SPOT looks up the lowest free spot of a type in a lot, lowest level first */
+create index PARKING_LOT_IDX on parking(LOT_NUMBER, TYPE, AVAILABLE, LEVEL_NUMBER, PARKING_NUMBER);
@@ -0,0 +1,2 @@
+/* The reporting queries stream tickets in IN_TIME order, read straight from this index instead of sorting the table */
+create index TICKET_IN_TIME_IDX on ticket(IN_TIME);
@@ -0,0 +1,20 @@
+/* Closed tickets moved out of the ticket table by the archival job. ARCHIVE_MONTH (yyyymm of OUT_TIME) is the partition key: a month is exported or dropped with one range delete, and on MySQL the table can be partitioned by range on it */
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ ARCHIVE_MONTH int NOT NULL);
+
+create index TICKET_ARCHIVE_MONTH_IDX on ticket_archive(ARCHIVE_MONTH);
+
+/* Reports stream archived tickets in IN_TIME order and check earlier visits of the same vehicle */
+create index TICKET_ARCHIVE_IN_TIME_IDX on ticket_archive(IN_TIME);
+create index TICKET_ARCHIVE_VEHICLE_IN_TIME_IDX on ticket_archive(VEHICLE_REG_NUMBER, IN_TIME);
+
+/* Number of archived tickets per vehicle, added to the tickets still in the ticket table to find recurring customers */
+create table visit_count_archive(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ NB_TICKET int NOT NULL);
@@ -0,0 +1,12 @@
+/* Spots booked ahead of arrival. The reservations of a spot never overlap */
+create table reservation(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ START_TIME DATETIME NOT NULL,
+ END_TIME DATETIME NOT NULL,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+
+/* The reservation index is loaded with the reservations not ended yet */
+create index RESERVATION_END_TIME_IDX on reservation(END_TIME);
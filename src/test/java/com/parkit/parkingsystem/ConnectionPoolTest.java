@@ -0,0 +1,162 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.StatementStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:connectionPoolTest;DB_CLOSE_DELAY=-1";
+
+    private final AtomicInteger openedConnections = new AtomicInteger();
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool newPool(int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis) {
+        return new ConnectionPool(() -> {
+            openedConnections.incrementAndGet();
+            return DriverManager.getConnection(URL, "sa", "");
+        }, maxSize, borrowTimeoutMillis, idleTimeoutMillis, 1);
+    }
+
+    @Test
+    @DisplayName("Reusing the same physical connection across borrows")
+    public void borrowReusesPhysicalConnectionTest() throws Exception {
+        pool = newPool(2, 1000, 0);
+
+        for (int i = 0; i < 5; i++) {
+            try (Connection con = pool.borrowConnection()) {
+                assertThat(con.isValid(1)).isTrue();
+            }
+        }
+
+        assertThat(openedConnections.get()).isEqualTo(1);
+        assertThat(pool.getBorrowCount()).isEqualTo(5);
+        assertThat(pool.getActiveCount()).isZero();
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Timing out when every connection of the pool is borrowed")
+    public void borrowTimesOutWhenPoolExhaustedTest() throws Exception {
+        pool = newPool(1, 50, 0);
+
+        try (Connection con = pool.borrowConnection()) {
+            assertThat(pool.getActiveCount()).isEqualTo(1);
+            assertThrows(SQLException.class, () -> pool.borrowConnection());
+        }
+
+        assertThat(pool.getBorrowTimeoutCount()).isEqualTo(1);
+        assertThat(pool.getMaxBorrowWaitNanos()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Discarding an idle connection that is no longer valid")
+    public void borrowDiscardsInvalidConnectionTest() throws Exception {
+        pool = newPool(1, 1000, 0);
+        Connection physical;
+        try (Connection con = pool.borrowConnection()) {
+            physical = con.unwrap(Connection.class);
+        }
+        physical.close();
+
+        try (Connection con = pool.borrowConnection()) {
+            assertThat(con.isValid(1)).isTrue();
+        }
+
+        assertThat(openedConnections.get()).isEqualTo(2);
+        assertThat(pool.getDiscardedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Closing idle connections once the idle timeout has elapsed")
+    public void evictIdleConnectionsTest() throws Exception {
+        pool = newPool(1, 1000, 10);
+        pool.borrowConnection().close();
+        Thread.sleep(50);
+
+        pool.evictIdleConnections();
+
+        assertThat(pool.getIdleCount()).isZero();
+        assertThat(pool.getDiscardedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Refusing to use a connection after it was given back to the pool")
+    public void closedConnectionCannotBeUsedTest() throws Exception {
+        pool = newPool(1, 1000, 0);
+        Connection con = pool.borrowConnection();
+        con.close();
+
+        assertThat(con.isClosed()).isTrue();
+        assertThrows(SQLException.class, () -> con.prepareStatement("select 1"));
+    }
+
+    @Test
+    @DisplayName("Preparing a statement once per physical connection and reusing it across borrows")
+    public void statementCacheReusesPreparedStatementTest() throws Exception {
+        pool = newPool(1, 1000, 0);
+        String sql = "select ? + 1";
+
+        for (int i = 0; i < 5; i++) {
+            try (Connection con = pool.borrowConnection();
+                 PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setInt(1, i);
+                ResultSet rs = ps.executeQuery();
+                rs.next();
+                assertThat(rs.getInt(1)).isEqualTo(i + 1);
+            }
+        }
+
+        StatementStatistics statistics = pool.getStatementStatistics();
+        assertThat(statistics.getPrepareCount(sql)).isEqualTo(1);
+        assertThat(statistics.getCacheHitCount(sql)).isEqualTo(4);
+        assertThat(statistics.getExecutionCount(sql)).isEqualTo(5);
+        assertThat(statistics.getStatements()).containsExactly(sql);
+    }
+
+    @Test
+    @DisplayName("Preparing a second statement when the cached one is still in use")
+    public void statementCacheInUseStatementTest() throws Exception {
+        pool = newPool(1, 1000, 0);
+        String sql = "select ?";
+
+        try (Connection con = pool.borrowConnection();
+             PreparedStatement first = con.prepareStatement(sql);
+             PreparedStatement second = con.prepareStatement(sql)) {
+            first.setInt(1, 1);
+            second.setInt(1, 2);
+            ResultSet firstResult = first.executeQuery();
+            ResultSet secondResult = second.executeQuery();
+            firstResult.next();
+            secondResult.next();
+            assertThat(firstResult.getInt(1)).isEqualTo(1);
+            assertThat(secondResult.getInt(1)).isEqualTo(2);
+        }
+        try (Connection con = pool.borrowConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            // Parameters of the previous borrower are cleared
+            assertThrows(SQLException.class, ps::executeQuery);
+        }
+        assertThat(pool.getStatementStatistics().getPrepareCount(sql)).isEqualTo(2);
+        assertThat(pool.getStatementStatistics().getCacheHitCount(sql)).isEqualTo(1);
+    }
+}
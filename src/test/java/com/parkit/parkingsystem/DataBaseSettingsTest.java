@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseSettings;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataBaseSettingsTest {
+
+    @Test
+    @DisplayName("Building the MySQL url with the driver tuning flags by default")
+    public void defaultSettingsTest() {
+        DataBaseSettings settings = DataBaseSettings.load(Collections.emptyMap(), new Properties());
+
+        assertThat(settings.getBackend()).isEqualTo(DataBaseSettings.Backend.MYSQL);
+        assertThat(settings.getDriverClassName()).isEqualTo("com.mysql.cj.jdbc.Driver");
+        assertThat(settings.getUrl()).isEqualTo("jdbc:mysql://localhost:3306/prod?useServerPrepStmts=true"
+                + "&cachePrepStmts=true&rewriteBatchedStatements=true");
+        assertThat(settings.getUser()).isEqualTo("root");
+        assertThat(settings.getPoolMaxSize()).isEqualTo(10);
+        assertThat(settings.getPoolStatementCacheSize()).isEqualTo(ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    @Test
+    @DisplayName("Overriding the settings file with the environment and the system properties")
+    public void overrideTest() throws Exception {
+        Path settingsFile = Files.createTempFile("database", ".properties");
+        try {
+            Files.write(settingsFile, Arrays.asList(
+                    "db.host=db.example.com",
+                    "db.pool.maxSize=20",
+                    "db.mysql.rewriteBatchedStatements=false"), StandardCharsets.UTF_8);
+            Map<String, String> environment = new HashMap<>();
+            environment.put("PARKIT_DB_POOL_MAXSIZE", "30");
+            environment.put("PARKIT_DB_PASSWORD", "secret");
+            Properties systemProperties = new Properties();
+            systemProperties.setProperty(DataBaseSettings.SETTINGS_FILE_PROPERTY, settingsFile.toString());
+            systemProperties.setProperty("parkit.db.password", "override");
+
+            DataBaseSettings settings = DataBaseSettings.load(environment, systemProperties);
+
+            assertThat(settings.getUrl()).startsWith("jdbc:mysql://db.example.com:3306/prod?")
+                    .endsWith("rewriteBatchedStatements=false");
+            assertThat(settings.getPoolMaxSize()).isEqualTo(30);
+            assertThat(settings.getPassword()).isEqualTo("override");
+        } finally {
+            Files.delete(settingsFile);
+        }
+    }
+
+    @Test
+    @DisplayName("Running the schema migrations on the embedded database profile")
+    public void embeddedProfileTest() throws Exception {
+        Properties systemProperties = new Properties();
+        systemProperties.setProperty("parkit.db.backend", "h2");
+        systemProperties.setProperty("parkit.db.name", "dataBaseSettingsTest");
+        DataBaseConfig dataBaseConfig = new DataBaseConfig(DataBaseSettings.load(Collections.emptyMap(), systemProperties));
+
+        new SchemaMigrator(dataBaseConfig).migrate();
+
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("select count(*) from parking");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            assertThat(rs.getInt(1)).isEqualTo(5);
+        }
+        assertThat(dataBaseConfig.getSettings().getUser()).isEqualTo("sa");
+    }
+}
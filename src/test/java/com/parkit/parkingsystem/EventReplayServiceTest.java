@@ -0,0 +1,142 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.EventReplayService;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EventReplayServiceTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("eventReplayServiceTest");
+
+    private TicketDAO ticketDAO;
+    private ParkingService parkingService;
+    private Path eventFile;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpotIndex();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingService = new ParkingService(parkingSpotDAO, ticketDAO, new FareCalculatorService());
+        eventFile = Files.createTempFile("gate-events", ".csv");
+    }
+
+    @AfterEach
+    public void tearDownPerTest() throws Exception {
+        Files.delete(eventFile);
+    }
+
+    @Test
+    @DisplayName("Replaying gate events with their recorded timestamps")
+    public void replayTest() throws Exception {
+        Files.write(eventFile, Arrays.asList(
+                "timestamp,action,plate,type",
+                "2024-03-01T08:00:00Z,ENTRY,CAR-1,CAR",
+                "2024-03-01T08:05:00Z,ENTRY,CAR-2,car",
+                "2024-03-01T08:10:00Z,ENTRY,CAR-3,CAR",
+                "# the lot is full for cars",
+                "2024-03-01T08:15:00Z,ENTRY,CAR-4,CAR",
+                "2024-03-01T09:00:00Z,ENTRY,BIKE-1,BIKE",
+                "2024-03-01T10:00:00Z,EXIT,CAR-1",
+                "2024-03-01T10:00:00Z,EXIT,UNKNOWN",
+                "not an event",
+                "2024-03-01T12:00:00Z,ENTRY,CAR-1,CAR",
+                "1709301600000,EXIT,CAR-1",
+                "2024-03-01T13:00:00Z,EXIT,BIKE-1"), StandardCharsets.UTF_8);
+
+        EventReplayService.Report report = new EventReplayService(parkingService, 2).replay(eventFile);
+
+        assertThat(report.getEvents()).isEqualTo(11);
+        assertThat(report.getEntries()).isEqualTo(5);
+        assertThat(report.getExits()).isEqualTo(3);
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getRejections()).hasSize(3).anyMatch(rejection -> rejection.startsWith("line 6:"));
+        // Two hours at 1.50, two recurring hours at 1.50 minus 5%, then four bike hours at 1.00
+        assertThat(report.getRevenueInCents()).isEqualTo(300 + 285 + 400);
+
+        Ticket ticket = ticketDAO.getTicket("CAR-1");
+        assertThat(ticket.getInTime().getTime()).isEqualTo(1709294400000L);
+        assertThat(ticket.getOutTime().getTime()).isEqualTo(1709301600000L);
+        assertThat(ticket.getPrice()).isEqualTo(2.85);
+        assertThat(ticketDAO.getTicket("CAR-2").getOutTime()).isNull();
+    }
+
+    @Test
+    @DisplayName("Replaying a large event log in chunks")
+    public void replayManyEventsTest() throws Exception {
+        long start = 1709280000000L;
+        List<String> events = new ArrayList<>();
+        for (int visit = 0; visit < 1000; visit++) {
+            long inTime = start + visit * 60 * 60 * 1000L;
+            events.add(inTime + ",ENTRY,PLATE-" + (visit % 50) + ",CAR");
+            events.add((inTime + 45 * 60 * 1000L) + ",EXIT,PLATE-" + (visit % 50));
+        }
+        Files.write(eventFile, events, StandardCharsets.UTF_8);
+
+        EventReplayService.Report report = new EventReplayService(parkingService).replay(eventFile);
+
+        assertThat(report.getEvents()).isEqualTo(2000);
+        assertThat(report.getRejected()).isZero();
+        // 45 minutes at 1.50, the first 50 visits at full price and the next ones discounted
+        assertThat(report.getRevenueInCents()).isEqualTo(50 * 113 + 950 * 107);
+        assertThat(report.getEventsPerSecond()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Logging each rejection once when a failed chunk is replayed event by event")
+    public void replayFailedChunkTest() throws Exception {
+        ParkingService failingParkingService = mock(ParkingService.class);
+        when(failingParkingService.enter(eq(ParkingType.CAR), eq("FULL"), any(Date.class)))
+                .thenReturn(EntryResult.parkingFull("Parking is full"));
+        when(failingParkingService.enter(eq(ParkingType.CAR), eq("BROKEN"), any(Date.class)))
+                .thenReturn(EntryResult.failed("Gate failure"));
+        Files.write(eventFile, Arrays.asList(
+                "1709280000000,ENTRY,FULL,CAR",
+                "1709280060000,ENTRY,BROKEN,CAR"), StandardCharsets.UTF_8);
+
+        TestAppender appender = new TestAppender("replayFailedChunkTest");
+        appender.start();
+        Logger logger = (Logger) LogManager.getLogger("EventReplayService");
+        logger.addAppender(appender);
+        EventReplayService.Report report;
+        try {
+            report = new EventReplayService(failingParkingService).replay(eventFile);
+        } finally {
+            logger.removeAppender(appender);
+        }
+
+        assertThat(report.getRejected()).isEqualTo(2);
+        assertThat(report.getRejections()).containsExactly("line 1: Parking is full", "line 2: Unable to replay event");
+        assertThat(appender.getMessages()).filteredOn(message -> message.startsWith("Rejected event"))
+                .containsExactly("Rejected event at line 1: Parking is full", "Rejected event at line 2: Unable to replay event");
+    }
+}
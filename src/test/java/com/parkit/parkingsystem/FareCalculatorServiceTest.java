@@ -248,4 +248,22 @@ public class FareCalculatorServiceTest {
 
         assertEquals(1.42, roundedPrice);
     }
+
+    @Test
+    @DisplayName("Successful rounding of a value just below a half cent")
+    public void roundPriceJustBelowHalfCentTest(){
+        // 1.5 * 0.95 computed in double arithmetic
+        double roundedPrice = fareCalculatorService.roundPrice(1.4249999999999998);
+
+        assertEquals(1.42, roundedPrice);
+    }
+
+    @Test
+    @DisplayName("Calculate the fare in cents for a car parked 45 minutes with the discount")
+    public void calculateFareInCentsCarWithDiscountTest(){
+        long priceInCents = fareCalculatorService.calculateFareInCents(ParkingType.CAR, 0, 45 * 60 * 1000, true);
+
+        // 112.5 cents rounds to 113, then 113 * 95% = 107.35 rounds to 107
+        assertEquals(107, priceInCents);
+    }
 }
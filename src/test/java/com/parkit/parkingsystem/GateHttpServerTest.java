@@ -0,0 +1,252 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateHttpServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GateHttpServerTest {
+
+    private static final Logger logger = LogManager.getLogger("GateHttpServerTest");
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("gateHttpServerTest");
+
+    private static final int GATES = 16;
+    private static final int VISITS_PER_GATE = 25;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private GateHttpServer server;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?, true, 'CAR')")) {
+            for (int parkingNumber = 6; parkingNumber <= 100; parkingNumber++) {
+                ps.setInt(1, parkingNumber);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpotIndex();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+
+        ReservationDAO reservationDAO = new ReservationDAO(parkingSpotDAO);
+        reservationDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.setReservationDAO(reservationDAO);
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO, new FareCalculatorService());
+        parkingService.setReservationDAO(reservationDAO);
+
+        server = new GateHttpServer(parkingService, 0, GATES);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        server.stop();
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Response call(String method, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+            body.write(buffer, 0, read);
+        }
+        in.close();
+        return new Response(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Entering, quoting and exiting a vehicle through the HTTP gate API")
+    public void entryQuoteExitTest() throws Exception {
+        Response entry = call("POST", "/entry?type=car&plate=AB-123-CD");
+        assertThat(entry.status).isEqualTo(201);
+        assertThat(entry.body).contains("\"vehicleRegNumber\":\"AB-123-CD\"", "\"parkingNumber\":1", "\"outTime\":null");
+
+        Response quote = call("GET", "/quote?plate=AB-123-CD");
+        assertThat(quote.status).isEqualTo(200);
+        assertThat(quote.body).contains("\"price\":0.0");
+
+        Response exit = call("POST", "/exit?plate=AB-123-CD");
+        assertThat(exit.status).isEqualTo(200);
+        assertThat(exit.body).contains("\"parkingNumber\":1").doesNotContain("\"outTime\":null");
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+        assertThat(call("POST", "/exit?plate=AB-123-CD").status).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Rejecting invalid gate requests")
+    public void invalidRequestsTest() throws Exception {
+        assertThat(call("POST", "/entry?type=TRUCK&plate=AB-123-CD").status).isEqualTo(400);
+        assertThat(call("POST", "/entry?type=CAR").status).isEqualTo(400);
+        assertThat(call("GET", "/entry?type=CAR&plate=AB-123-CD").status).isEqualTo(405);
+        assertThat(call("GET", "/quote?plate=UNKNOWN").status).isEqualTo(404);
+
+        call("POST", "/entry?type=BIKE&plate=BIKE-1");
+        call("POST", "/entry?type=BIKE&plate=BIKE-2");
+        assertThat(call("POST", "/entry?type=BIKE&plate=BIKE-3").status).isEqualTo(409);
+    }
+
+    @Test
+    @DisplayName("Booking spots through the HTTP gate API")
+    public void reservationTest() throws Exception {
+        long from = System.currentTimeMillis() + 24 * 60 * 60 * 1000;
+        long to = from + 2 * 60 * 60 * 1000;
+
+        Response reservation = call("POST", "/reservation?type=BIKE&plate=BIKE-1&from=" + from + "&to=" + to);
+        assertThat(reservation.status).isEqualTo(201);
+        assertThat(reservation.body).contains("\"vehicleRegNumber\":\"BIKE-1\"", "\"parkingNumber\":4",
+                "\"startTime\":" + from);
+        assertThat(call("POST", "/reservation?type=BIKE&plate=BIKE-2&from=" + from + "&to=" + to).status).isEqualTo(201);
+        assertThat(call("POST", "/reservation?type=BIKE&plate=BIKE-3&from=" + from + "&to=" + to).status).isEqualTo(409);
+        assertThat(call("POST", "/reservation?type=BIKE&plate=BIKE-3&from=" + to + "&to=" + from).status).isEqualTo(400);
+        assertThat(call("POST", "/reservation?type=BIKE&plate=BIKE-3&from=" + from + "&to=" + to + "&lot=x").status).isEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("Scraping the gate and database metrics")
+    public void metricsTest() throws Exception {
+        call("POST", "/entry?type=CAR&plate=METRICS-1");
+
+        Response metrics = call("GET", "/metrics");
+        assertThat(metrics.status).isEqualTo(200);
+        assertThat(metrics.body).contains("gate_entry_seconds_count ", "gate_entries_total{status=\"PARKED\"} ",
+                "db_statement_seconds_count{statement=\"SAVE_TICKET\"} ");
+        assertThat(call("POST", "/metrics").status).isEqualTo(405);
+    }
+
+    @Test
+    @DisplayName("Closing a ticket once when two gates exit the same vehicle concurrently")
+    public void concurrentExitsOfOneVehicleTest() throws Exception {
+        ExecutorService gates = Executors.newFixedThreadPool(2);
+        int freeSpots = parkingSpotDAO.getFreeSpotIndex().countFreeSpots(ParkingType.CAR);
+        for (int visit = 0; visit < 20; visit++) {
+            String plate = "TWICE-" + visit;
+            assertThat(call("POST", "/entry?type=CAR&plate=" + plate).status).isEqualTo(201);
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> exits = new ArrayList<>();
+            for (int gate = 0; gate < 2; gate++) {
+                exits.add(gates.submit(() -> {
+                    start.await();
+                    return call("POST", "/exit?plate=" + plate).status;
+                }));
+            }
+            start.countDown();
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> exit : exits) {
+                statuses.add(exit.get());
+            }
+
+            assertThat(statuses).containsExactlyInAnyOrder(200, 404);
+            assertThat(parkingSpotDAO.getFreeSpotIndex().countFreeSpots(ParkingType.CAR)).isEqualTo(freeSpots);
+        }
+        gates.shutdown();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("select count(*) from parking where TYPE = 'CAR' and AVAILABLE = true");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            assertThat(rs.getInt(1)).isEqualTo(freeSpots);
+        }
+    }
+
+    @Test
+    @DisplayName("Serving many gates concurrently with bounded latency")
+    public void concurrentGatesLatencyTest() throws Exception {
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int gate = 0; gate < GATES; gate++) {
+            int gateNumber = gate;
+            results.add(gates.submit(() -> {
+                long[] latencies = new long[VISITS_PER_GATE * 3];
+                int calls = 0;
+                for (int visit = 0; visit < VISITS_PER_GATE; visit++) {
+                    String plate = "GATE" + gateNumber + "-" + (visit % 5);
+                    long start = System.nanoTime();
+                    assertThat(call("POST", "/entry?type=CAR&plate=" + plate).status).isEqualTo(201);
+                    latencies[calls++] = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    assertThat(call("GET", "/quote?plate=" + plate).status).isEqualTo(200);
+                    latencies[calls++] = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    assertThat(call("POST", "/exit?plate=" + plate).status).isEqualTo(200);
+                    latencies[calls++] = System.nanoTime() - start;
+                }
+                return latencies;
+            }));
+        }
+
+        long[] latencies = new long[0];
+        for (Future<long[]> result : results) {
+            long[] gateLatencies = result.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + gateLatencies.length);
+            System.arraycopy(gateLatencies, 0, latencies, offset, gateLatencies.length);
+        }
+        gates.shutdown();
+        Arrays.sort(latencies);
+
+        long p50 = percentileMillis(latencies, 50);
+        long p95 = percentileMillis(latencies, 95);
+        long p99 = percentileMillis(latencies, 99);
+        logger.info(latencies.length + " gate requests from " + GATES + " gates: p50=" + p50 + "ms p95=" + p95
+                + "ms p99=" + p99 + "ms max=" + latencies[latencies.length - 1] / 1000000 + "ms");
+
+        assertThat(latencies).hasSize(GATES * VISITS_PER_GATE * 3);
+        assertThat(p99).isLessThan(2000);
+        assertThat(parkingSpotDAO.getFreeSpotIndex().countFreeSpots(ParkingType.CAR)).isEqualTo(98);
+    }
+
+    private static long percentileMillis(long[] sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1000000;
+    }
+}
@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Histogram;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class MetricsRegistryTest {
+
+    @Test
+    @DisplayName("Reporting histogram percentiles within the bucket precision")
+    public void histogramPercentileTest() {
+        Histogram histogram = new Histogram(1);
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100000);
+        assertThat(histogram.getMax()).isEqualTo(100000);
+        assertThat(histogram.getMean()).isCloseTo(50000.5, within(0.001));
+        assertThat(histogram.getPercentile(50)).isCloseTo(50000, within(1500.0));
+        assertThat(histogram.getPercentile(99)).isCloseTo(99000, within(3000.0));
+        assertThat(histogram.getPercentile(100)).isEqualTo(100000);
+        assertThat(new Histogram(1).getPercentile(99)).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Writing metrics in the Prometheus text format")
+    public void writeTextTest() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("gate_entries_total", "status", "PARKED").add(3);
+        registry.counter("gate_entries_total", "status", "PARKED").increment();
+        registry.timer("gate_entry_seconds").record(2000000);
+        registry.gauge("parking_spots_free", () -> 7, "type", "CAR");
+
+        StringBuilder text = new StringBuilder();
+        registry.writeText(text);
+
+        assertThat(text.toString()).contains(
+                "# TYPE gate_entries_total counter\ngate_entries_total{status=\"PARKED\"} 4\n",
+                "# TYPE gate_entry_seconds summary\n",
+                "gate_entry_seconds{quantile=\"0.99\"} 0.002",
+                "gate_entry_seconds_count 1\n",
+                "# TYPE parking_spots_free gauge\nparking_spots_free{type=\"CAR\"} 7\n");
+    }
+
+    @Test
+    @DisplayName("Reading metrics through JMX")
+    public void jmxTest() throws Exception {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        Counter counter = registry.counter("metrics_registry_test_total");
+        counter.add(5);
+        registry.timer("metrics_registry_test_seconds").record(1000000);
+        registry.registerMBean();
+        registry.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(MetricsRegistry.OBJECT_NAME);
+        assertThat(server.getAttribute(objectName, "metrics_registry_test_total")).isEqualTo(5L);
+        assertThat((Double) server.getAttribute(objectName, "metrics_registry_test_seconds.count")).isEqualTo(1.0);
+        assertThat((Double) server.getAttribute(objectName, "metrics_registry_test_seconds.max")).isCloseTo(0.001, within(1e-9));
+    }
+}
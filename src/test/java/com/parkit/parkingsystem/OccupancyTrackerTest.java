@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.FreeSpotIndex;
+import com.parkit.parkingsystem.dao.OccupancyTracker;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OccupancyTrackerTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("occupancyTrackerTest");
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private ParkingService parkingService;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingService = new ParkingService(parkingSpotDAO, ticketDAO, new FareCalculatorService());
+    }
+
+    @Test
+    @DisplayName("Counting free and occupied spots as vehicles enter and exit")
+    public void countsFollowEntriesAndExitsTest() {
+        OccupancyTracker occupancyTracker = parkingSpotDAO.getOccupancyTracker();
+        assertThat(occupancyTracker.getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+        assertThat(occupancyTracker.getOccupiedSpots(ParkingType.CAR)).isEqualTo(0);
+
+        parkingService.enter(ParkingType.CAR, "ABCDEF");
+        parkingService.enter(ParkingType.BIKE, "GHIJKL");
+        assertThat(occupancyTracker.getFreeSpots(ParkingType.CAR)).isEqualTo(2);
+        assertThat(occupancyTracker.getOccupiedSpots(ParkingType.CAR)).isEqualTo(1);
+        assertThat(occupancyTracker.getFreeSpots(ParkingType.BIKE)).isEqualTo(1);
+
+        parkingService.exit("ABCDEF");
+        assertThat(occupancyTracker.getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+        assertThat(occupancyTracker.getOccupiedSpots(ParkingType.CAR)).isEqualTo(0);
+        assertThat(occupancyTracker.getOccupiedSpots(ParkingType.BIKE)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Pushing the current counts, then every change, to subscribers")
+    public void subscriptionTest() throws Exception {
+        OccupancyTracker occupancyTracker = parkingSpotDAO.getOccupancyTracker();
+        BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+        OccupancyTracker.Listener listener = (lotNumber, parkingType, free, occupied) -> changes.add(lotNumber + " " + parkingType + " " + free + "/" + occupied);
+        occupancyTracker.subscribe(listener);
+        assertThat(changes.poll(5, TimeUnit.SECONDS)).isEqualTo("1 CAR 3/0");
+        assertThat(changes.poll(5, TimeUnit.SECONDS)).isEqualTo("1 BIKE 2/0");
+
+        parkingService.enter(ParkingType.CAR, "ABCDEF");
+        assertThat(changes.poll(5, TimeUnit.SECONDS)).isEqualTo("1 CAR 2/1");
+
+        occupancyTracker.unsubscribe(listener);
+        parkingService.exit("ABCDEF");
+        assertThat(changes.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        occupancyTracker.close();
+    }
+
+    @Test
+    @DisplayName("Keeping exact counts under concurrent claims")
+    public void concurrentClaimsTest() throws Exception {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int parkingNumber = 1; parkingNumber <= 1000; parkingNumber++) {
+            parkingSpots.add(new ParkingSpot(parkingNumber, parkingNumber % 4 == 0 ? ParkingType.BIKE : ParkingType.CAR, true));
+        }
+        FreeSpotIndex freeSpotIndex = new FreeSpotIndex();
+        freeSpotIndex.reset(parkingSpots);
+
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> claims = new ArrayList<>();
+        for (int gate = 0; gate < 8; gate++) {
+            claims.add(gates.submit(() -> {
+                int claimed = 0;
+                for (int i = 0; i < 100; i++) {
+                    int parkingNumber = freeSpotIndex.claimLowestFreeSpot(ParkingType.CAR);
+                    if (parkingNumber > 0) {
+                        claimed++;
+                        if (i % 2 == 0) {
+                            freeSpotIndex.markAvailable(parkingNumber, true);
+                            claimed--;
+                        }
+                    }
+                }
+                return claimed;
+            }));
+        }
+        int claimed = 0;
+        for (Future<Integer> claim : claims) {
+            claimed += claim.get();
+        }
+        gates.shutdown();
+
+        OccupancyTracker occupancyTracker = freeSpotIndex.getOccupancyTracker();
+        assertThat(claimed).isEqualTo(400);
+        assertThat(occupancyTracker.getOccupiedSpots(ParkingType.CAR)).isEqualTo(400);
+        assertThat(occupancyTracker.getFreeSpots(ParkingType.CAR)).isEqualTo(350);
+        assertThat(occupancyTracker.getFreeSpots(ParkingType.BIKE)).isEqualTo(250);
+    }
+}
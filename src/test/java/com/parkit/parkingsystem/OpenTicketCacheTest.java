@@ -0,0 +1,110 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OpenTicketCache;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OpenTicketCacheTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("openTicketCacheTest");
+
+    private static Ticket openTicket(int id, String vehicleRegNumber, int parkingNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingNumber % 2 == 0 ? ParkingType.CAR : ParkingType.BIKE, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    @Test
+    @DisplayName("Caching open tickets and ignoring closed ones")
+    public void putGetTest() {
+        OpenTicketCache openTicketCache = new OpenTicketCache(4);
+        openTicketCache.put(openTicket(7, "ABCDEF", 3, 1000L));
+        Ticket closed = openTicket(8, "GHIJKL", 4, 1000L);
+        closed.setOutTime(new Date(2000L));
+        openTicketCache.put(closed);
+
+        Ticket ticket = openTicketCache.get("ABCDEF");
+        assertThat(ticket.getId()).isEqualTo(7);
+        assertThat(ticket.getParkingSpot().getId()).isEqualTo(3);
+        assertThat(ticket.getParkingSpot().getParkingType()).isEqualTo(ParkingType.BIKE);
+        assertThat(ticket.getInTime().getTime()).isEqualTo(1000L);
+        assertThat(ticket.getOutTime()).isNull();
+        assertThat(openTicketCache.get("GHIJKL")).isNull();
+        assertThat(openTicketCache.getHitCount()).isEqualTo(1);
+        assertThat(openTicketCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Growing and removing entries like a map")
+    public void growAndRemoveTest() {
+        OpenTicketCache openTicketCache = new OpenTicketCache(1);
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int operation = 0; operation < 20000; operation++) {
+            String vehicleRegNumber = "PLATE-" + random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                openTicketCache.remove(vehicleRegNumber);
+                expected.remove(vehicleRegNumber);
+            } else {
+                openTicketCache.put(openTicket(operation, vehicleRegNumber, 1, operation));
+                expected.put(vehicleRegNumber, operation);
+            }
+        }
+
+        assertThat(openTicketCache.size()).isEqualTo(expected.size());
+        assertThat(openTicketCache.capacity()).isGreaterThanOrEqualTo(expected.size() * 2);
+        for (int plate = 0; plate < 3000; plate++) {
+            Ticket ticket = openTicketCache.get("PLATE-" + plate);
+            Integer id = expected.get("PLATE-" + plate);
+            assertThat(ticket == null ? null : ticket.getId()).isEqualTo(id);
+        }
+    }
+
+    @Test
+    @DisplayName("Finding the ticket of an exiting vehicle without reading the database")
+    public void exitFromCacheTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO, new FareCalculatorService());
+        Date inTime = new Date(System.currentTimeMillis() - 60 * 60 * 1000);
+        parkingService.enter(ParkingType.CAR, "ABCDEF", inTime);
+        parkingService.enter(ParkingType.CAR, "GHIJKL", inTime);
+
+        OpenTicketCache openTicketCache = ticketDAO.getOpenTicketCache();
+        assertThat(openTicketCache.size()).isEqualTo(2);
+        assertThat(parkingService.exit("ABCDEF", new Date()).getPrice()).isEqualTo(1.5);
+        assertThat(openTicketCache.getHitCount()).isEqualTo(1);
+        assertThat(openTicketCache.getMissCount()).isZero();
+        assertThat(openTicketCache.size()).isEqualTo(1);
+        assertThat(ticketDAO.getTicket("ABCDEF").getOutTime()).isNotNull();
+
+        // A restarted gate loads the vehicles still parked
+        TicketDAO restartedTicketDAO = new TicketDAO();
+        restartedTicketDAO.dataBaseConfig = dataBaseConfig;
+        assertThat(restartedTicketDAO.loadOpenTicketCache()).isEqualTo(1);
+        Ticket ticket = restartedTicketDAO.getOpenTicketCache().get("GHIJKL");
+        assertThat(ticket.getId()).isEqualTo(ticketDAO.getTicket("GHIJKL").getId());
+        assertThat(ticket.getParkingSpot().getId()).isEqualTo(2);
+    }
+}
@@ -3,6 +3,8 @@ package com.parkit.parkingsystem;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.ParkingService;
@@ -53,9 +55,11 @@ public class ParkingServiceTest {
     @DisplayName("Successfully handling the entry of a new car")
     public void processIncomingVehicleCarTest() throws Exception {
         when(ticketDAO.getNbTicket(anyString())).thenReturn(0);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.CAR)).thenReturn(new ParkingSpot(1, ParkingType.CAR, false));
 
         parkingService.processIncomingVehicle();
 
@@ -66,9 +70,11 @@ public class ParkingServiceTest {
     @DisplayName("Successfully handling the entrance to a recurring car that has already been here")
     public void processIncomingVehicleDiscountCarTest() throws Exception {
         when(ticketDAO.getNbTicket(anyString())).thenReturn(2);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.CAR)).thenReturn(new ParkingSpot(1, ParkingType.CAR, false));
 
         parkingService.processIncomingVehicle();
 
@@ -79,9 +85,11 @@ public class ParkingServiceTest {
     @DisplayName("Successfully treating the entrance to a bike")
     public void processIncomingVehicleBikeTest() throws Exception {
         when(ticketDAO.getNbTicket(anyString())).thenReturn(1);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
         when(inputReaderUtil.readSelection()).thenReturn(2);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).thenReturn(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.BIKE)).thenReturn(new ParkingSpot(1, ParkingType.BIKE, false));
 
         parkingService.processIncomingVehicle();
 
@@ -92,9 +100,11 @@ public class ParkingServiceTest {
     @DisplayName("Successfully handling the entry of a bike that has already been here")
     public void processIncomingVehicleDiscountBikeTest() throws Exception {
         when(ticketDAO.getNbTicket(anyString())).thenReturn(2);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
         when(inputReaderUtil.readSelection()).thenReturn(2);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).thenReturn(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.BIKE)).thenReturn(new ParkingSpot(1, ParkingType.BIKE, false));
 
         parkingService.processIncomingVehicle();
 
@@ -118,7 +128,7 @@ public class ParkingServiceTest {
 
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
-        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(1);
         when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
         when(ticketDAO.getNbTicket(anyString())).thenReturn(1);
 
@@ -128,13 +138,13 @@ public class ParkingServiceTest {
     }
 
     @Test
-    @DisplayName("Running the test in case the updateTicket() method of ticketDAO returns false when calling processExitingVehicle()")
+    @DisplayName("Running the test in case the updateTicket() method of ticketDAO fails when calling processExitingVehicle()")
     public void processExitingVehicleTestUnableUpdate() throws Exception {
         Ticket ticket = newTicketForTest();
 
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
-        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(false);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(-1);
         when(ticketDAO.getNbTicket(anyString())).thenReturn(1);
 
         parkingService.processExitingVehicle();
@@ -149,7 +159,7 @@ public class ParkingServiceTest {
 
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
-        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(1);
         when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
         when(ticketDAO.getNbTicket(anyString())).thenReturn(2);
 
@@ -206,11 +216,38 @@ public class ParkingServiceTest {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenThrow(IllegalArgumentException.class);
         when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.CAR)).thenReturn(new ParkingSpot(1, ParkingType.CAR, false));
 
         assertThrows(IllegalArgumentException.class, () -> inputReaderUtil.readVehicleRegistrationNumber());
         parkingService.processIncomingVehicle();
     }
 
+    @Test
+    @DisplayName("Not claiming any spot when the registration number cannot be read")
+    public void processIncomingVehicleUnreadableRegNumberTest() throws Exception {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenThrow(IllegalArgumentException.class);
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+
+        parkingService.processIncomingVehicle();
+
+        verify(parkingSpotDAO, Mockito.never()).claimNextAvailableSlot(anyInt(), any(ParkingType.class));
+        verify(ticketDAO, Mockito.never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    @DisplayName("Not saving any ticket when the last spot was claimed by another gate")
+    public void processIncomingVehicleParkingFullTest() throws Exception {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.CAR)).thenReturn(null);
+
+        parkingService.processIncomingVehicle();
+
+        verify(ticketDAO, Mockito.never()).saveTicket(any(Ticket.class));
+    }
+
     @Test
     @DisplayName("Recovering the type of vehicle")
     public void getVehicleTypeTest() throws Exception {
@@ -218,13 +255,68 @@ public class ParkingServiceTest {
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
         when(ticketDAO.getNbTicket(anyString())).thenReturn(2);
-        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(1);
 
         parkingService.processExitingVehicle();
 
         verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
     }
 
+    @Test
+    @DisplayName("Entering a recurring vehicle without any console input")
+    public void enterTest() {
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.CAR)).thenReturn(new ParkingSpot(1, ParkingType.CAR, false));
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(2);
+
+        EntryResult result = parkingService.enter(ParkingType.CAR, "ABCDEF");
+
+        assertThat(result.getStatus()).isEqualTo(EntryResult.Status.PARKED);
+        assertThat(result.getTicket().getParkingSpot().getId()).isEqualTo(1);
+        assertThat(result.isRecurring()).isTrue();
+        verifyZeroInteractions(inputReaderUtil);
+    }
+
+    @Test
+    @DisplayName("Reporting a full parking lot on entry")
+    public void enterParkingFullTest() {
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingSpot.DEFAULT_LOT, ParkingType.BIKE)).thenReturn(null);
+
+        EntryResult result = parkingService.enter(ParkingType.BIKE, "ABCDEF");
+
+        assertThat(result.getStatus()).isEqualTo(EntryResult.Status.PARKING_FULL);
+        verify(ticketDAO, Mockito.never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    @DisplayName("Exiting a vehicle without any console input")
+    public void exitTest() {
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(newTicketForTest());
+        when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(1);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(1);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+
+        ExitResult result = parkingService.exit("ABCDEF");
+
+        assertThat(result.getStatus()).isEqualTo(ExitResult.Status.EXITED);
+        assertThat(result.getPrice()).isEqualTo(1.5);
+        assertThat(result.isRecurring()).isFalse();
+        verifyZeroInteractions(inputReaderUtil);
+    }
+
+    @Test
+    @DisplayName("Reporting a vehicle that is not parked on exit")
+    public void exitNoTicketTest() {
+        Ticket closedTicket = newTicketForTest();
+        closedTicket.setOutTime(new Date());
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(closedTicket);
+
+        ExitResult result = parkingService.exit("ABCDEF");
+
+        assertThat(result.getStatus()).isEqualTo(ExitResult.Status.NO_TICKET);
+        verify(ticketDAO, Mockito.never()).updateTicket(any(Ticket.class));
+    }
+
     private Ticket newTicketForTest() {
         ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR,false);
         Ticket ticket = new Ticket();
@@ -0,0 +1,178 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParkingSpotDAOTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("parkingSpotDAOTest");
+
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    private void executeSql(String sql) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    @Test
+    @DisplayName("Returning the lowest free spot of each type from the index")
+    public void getNextAvailableSlotTest() {
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Keeping the index in line with updateParking")
+    public void updateParkingUpdatesIndexTest() {
+        parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+
+        assertThat(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false))).isTrue();
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+
+        assertThat(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, true))).isTrue();
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Returning 0 when every spot of a type is taken")
+    public void getNextAvailableSlotWhenFullTest() {
+        parkingSpotDAO.updateParking(new ParkingSpot(4, ParkingType.BIKE, false));
+        parkingSpotDAO.updateParking(new ParkingSpot(5, ParkingType.BIKE, false));
+
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).isZero();
+    }
+
+    @Test
+    @DisplayName("Repairing the index when the database was changed behind its back")
+    public void reconcileFreeSpotIndexTest() throws Exception {
+        parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+        executeSql("update parking set AVAILABLE = false where PARKING_NUMBER in (1, 4)");
+
+        assertThat(parkingSpotDAO.reconcileFreeSpotIndex()).isEqualTo(2);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Never handing the same spot to two gates claiming concurrently")
+    public void claimNextAvailableSlotConcurrentlyTest() throws Exception {
+        addCarSpots(6, 300);
+        ParkingSpotDAO otherGateParkingSpotDAO = new ParkingSpotDAO();
+        otherGateParkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ParkingSpotDAO[] gates = {parkingSpotDAO, otherGateParkingSpotDAO};
+
+        Set<Integer> claimedSpots = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            ParkingSpotDAO gate = gates[i % gates.length];
+            futures.add(executor.submit(() -> {
+                start.await();
+                ParkingSpot parkingSpot;
+                while ((parkingSpot = gate.claimNextAvailableSlot(ParkingType.CAR)) != null) {
+                    if (!claimedSpots.add(parkingSpot.getId())) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(duplicates.get()).isZero();
+        assertThat(claimedSpots).hasSize(298);
+        assertThat(countAvailable("CAR")).isZero();
+        assertThat(countAvailable("BIKE")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Skipping a spot taken in the database without the index knowing")
+    public void claimNextAvailableSlotSkipsDriftedSpotTest() throws Exception {
+        parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+        executeSql("update parking set AVAILABLE = false where PARKING_NUMBER = 1");
+
+        ParkingSpot parkingSpot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+
+        assertThat(parkingSpot.getId()).isEqualTo(2);
+        assertThat(parkingSpot.isAvailable()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Claiming spots lot by lot, lowest level first")
+    public void claimNextAvailableSlotPerLotTest() throws Exception {
+        executeSql("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE, LOT_NUMBER, LEVEL_NUMBER) values"
+                + "(6,true,'CAR',2,1),(7,true,'CAR',2,0),(8,true,'CAR',2,1),(9,true,'BIKE',2,0)");
+
+        ParkingSpot first = parkingSpotDAO.claimNextAvailableSlot(2, ParkingType.CAR);
+        ParkingSpot second = parkingSpotDAO.claimNextAvailableSlot(2, ParkingType.CAR);
+
+        assertThat(first.getId()).isEqualTo(7);
+        assertThat(first.getLotNumber()).isEqualTo(2);
+        assertThat(first.getLevelNumber()).isZero();
+        assertThat(second.getId()).isEqualTo(6);
+        assertThat(second.getLevelNumber()).isEqualTo(1);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+        assertThat(parkingSpotDAO.getFreeSpotIndex().countFreeSpots(2, ParkingType.CAR)).isEqualTo(1);
+        assertThat(parkingSpotDAO.getFreeSpotIndex().countFreeSpots(ParkingType.CAR)).isEqualTo(4);
+
+        assertThat(parkingSpotDAO.claimNextAvailableSlot(2, ParkingType.CAR).getId()).isEqualTo(8);
+        assertThat(parkingSpotDAO.claimNextAvailableSlot(2, ParkingType.CAR)).isNull();
+        assertThat(parkingSpotDAO.claimNextAvailableSlot(3, ParkingType.CAR)).isNull();
+    }
+
+    private void addCarSpots(int firstParkingNumber, int lastParkingNumber) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement()) {
+            for (int parkingNumber = firstParkingNumber; parkingNumber <= lastParkingNumber; parkingNumber++) {
+                statement.addBatch("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(" + parkingNumber + ",true,'CAR')");
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private int countAvailable(String parkingType) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*) from parking where AVAILABLE = true and TYPE = '" + parkingType + "'")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
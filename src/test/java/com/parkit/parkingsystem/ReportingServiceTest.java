@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.ReportingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class ReportingServiceTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("reportingServiceTest");
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    // 2024-01-01T00:00:00Z
+    private static final long BASE_TIME = 1704067200000L;
+
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    private void insertTicket(int parkingNumber, String vehicleRegNumber, double price, long inTime, long outTime) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicleRegNumber);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, outTime < 0 ? null : new Timestamp(outTime));
+            ps.executeUpdate();
+        }
+    }
+
+    @Test
+    @DisplayName("Reporting revenue per day and type, stays, peak occupancy and recurring share")
+    public void reportTest() throws Exception {
+        // Left before the period
+        insertTicket(1, "OLD", 5, BASE_TIME - 10 * HOUR, BASE_TIME - 5 * HOUR);
+        // Parked when the period starts
+        insertTicket(1, "ABC", 4.5, BASE_TIME - 2 * HOUR, BASE_TIME + HOUR);
+        // Second visit of ABC
+        insertTicket(2, "ABC", 3, BASE_TIME + 2 * HOUR, BASE_TIME + 4 * HOUR);
+        // Leaves the next day
+        insertTicket(4, "XYZ", 1, BASE_TIME + 3 * HOUR, BASE_TIME + 26 * HOUR);
+        // Still parked
+        insertTicket(3, "DEF", 0, BASE_TIME + 3 * HOUR + 30 * MINUTE, -1);
+        // Entered after the period
+        insertTicket(1, "GHI", 0, BASE_TIME + 50 * HOUR, -1);
+
+        ReportingService.Report report = new ReportingService(ticketDAO, ZoneOffset.UTC, 2)
+                .report(new Date(BASE_TIME), new Date(BASE_TIME + 48 * HOUR));
+
+        assertThat(report.getTickets()).isEqualTo(4);
+        assertThat(report.getClosedTickets()).isEqualTo(3);
+        assertThat(report.getRevenueInCents()).isEqualTo(850);
+        assertThat(report.getRevenueInCents(ParkingType.CAR)).isEqualTo(750);
+        assertThat(report.getRevenueInCents(ParkingType.BIKE)).isEqualTo(100);
+        assertThat(report.getDays()).containsExactly(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2));
+        assertThat(report.getRevenueInCents(LocalDate.of(2024, 1, 1), ParkingType.CAR)).isEqualTo(750);
+        assertThat(report.getRevenueInCents(LocalDate.of(2024, 1, 2), ParkingType.BIKE)).isEqualTo(100);
+        assertThat(report.getAverageStayMillis(ParkingType.CAR)).isEqualTo(150 * MINUTE);
+        assertThat(report.getAverageStayMillis(ParkingType.BIKE)).isEqualTo(23 * HOUR);
+        assertThat(report.getAverageStayMillis()).isEqualTo(28 * HOUR / 3);
+        assertThat(report.getPeakOccupancy()).isEqualTo(3);
+        assertThat(report.getPeakTime()).isEqualTo(BASE_TIME + 3 * HOUR + 30 * MINUTE);
+        assertThat(report.getEntries()).isEqualTo(3);
+        assertThat(report.getRecurringShare()).isCloseTo(1.0 / 3, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Counting exits before entries of the same instant for the peak occupancy")
+    public void peakOccupancyTest() {
+        ReportingService.Report report = new ReportingService.Report(BASE_TIME, BASE_TIME + 1000 * HOUR, ZoneOffset.UTC);
+
+        // One hour stays, one entry every ten minutes: never more than six vehicles
+        for (int i = 0; i < 5000; i++) {
+            long inTime = BASE_TIME + i * 10 * MINUTE;
+            report.add(ParkingType.CAR, inTime, inTime + HOUR, 150, i % 2 == 1);
+        }
+
+        assertThat(report.getPeakOccupancy()).isEqualTo(6);
+        assertThat(report.getPeakTime()).isEqualTo(BASE_TIME + 50 * MINUTE);
+        assertThat(report.getRecurringShare()).isEqualTo(0.5);
+    }
+}
@@ -0,0 +1,160 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReservationTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("reservationTest");
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private ReservationDAO reservationDAO;
+    private ParkingService parkingService;
+    // Midnight, in two days
+    private long tomorrow;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        reservationDAO = newReservationDAO();
+        parkingSpotDAO.setReservationDAO(reservationDAO);
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingService = new ParkingService(parkingSpotDAO, ticketDAO, new FareCalculatorService());
+        parkingService.setReservationDAO(reservationDAO);
+        tomorrow = (System.currentTimeMillis() / (24 * HOUR) + 2) * 24 * HOUR;
+    }
+
+    private ReservationDAO newReservationDAO() {
+        ReservationDAO newReservationDAO = new ReservationDAO(parkingSpotDAO);
+        newReservationDAO.dataBaseConfig = dataBaseConfig;
+        return newReservationDAO;
+    }
+
+    private Reservation reserve(String vehicleRegNumber, long from, long to) {
+        return reservationDAO.reserve(1, ParkingType.CAR, vehicleRegNumber, new Date(from), new Date(to));
+    }
+
+    private String querySingleValue(String sql) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Booking the lowest spot free for the whole window, until none is left")
+    public void reserveTest() throws Exception {
+        long twoPm = tomorrow + 14 * HOUR;
+
+        assertThat(reserve("AAA", twoPm, twoPm + 2 * HOUR).getParkingSpot().getId()).isEqualTo(1);
+        assertThat(reserve("BBB", twoPm + HOUR, twoPm + 3 * HOUR).getParkingSpot().getId()).isEqualTo(2);
+        // Starts as the first one ends
+        assertThat(reserve("CCC", twoPm + 2 * HOUR, twoPm + 4 * HOUR).getParkingSpot().getId()).isEqualTo(1);
+        // Already booked at that time
+        assertThat(reserve("AAA", twoPm + HOUR, twoPm + 5 * HOUR)).isNull();
+        assertThat(reserve("DDD", twoPm + 90 * MINUTE, twoPm + 105 * MINUTE).getParkingSpot().getId()).isEqualTo(3);
+
+        assertThat(reserve("EEE", twoPm + HOUR, twoPm + 2 * HOUR)).isNull();
+        assertThat(reservationDAO.isAvailable(1, ParkingType.CAR, new Date(twoPm + 100 * MINUTE), new Date(twoPm + 2 * HOUR))).isFalse();
+        assertThat(reservationDAO.isAvailable(1, ParkingType.CAR, new Date(twoPm + 3 * HOUR), new Date(twoPm + 4 * HOUR))).isTrue();
+        assertThat(reservationDAO.isAvailable(2, ParkingType.CAR, new Date(twoPm), new Date(twoPm + HOUR))).isFalse();
+        assertThat(querySingleValue("select count(*) from reservation")).isEqualTo("4");
+
+        // Reloaded from the database
+        ReservationDAO reloadedReservationDAO = newReservationDAO();
+        assertThat(reloadedReservationDAO.getReservation("CCC", 1, new Date(twoPm + 2 * HOUR)).getParkingSpot().getId()).isEqualTo(1);
+        assertThat(reloadedReservationDAO.isHeld(3, twoPm)).isTrue();
+        assertThat(reloadedReservationDAO.getReservationIndex().size()).isEqualTo(4);
+
+        Reservation reservation = reservationDAO.getReservation("DDD", 1, new Date(twoPm + 90 * MINUTE));
+        assertThat(reservationDAO.cancelReservation(reservation.getId())).isTrue();
+        assertThat(reservationDAO.cancelReservation(reservation.getId())).isFalse();
+        assertThat(reserve("EEE", twoPm + HOUR, twoPm + 2 * HOUR).getParkingSpot().getId()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Keeping walk-ins away from spots reserved soon, and parking the holder there")
+    public void enterWithReservationTest() throws Exception {
+        long now = System.currentTimeMillis();
+        // Far ahead, walk-ins may still use the spot
+        assertThat(reserve("FAR", tomorrow, tomorrow + HOUR).getParkingSpot().getId()).isEqualTo(1);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+
+        EntryResult walkIn = parkingService.enter(ParkingType.CAR, "WALKIN");
+        assertThat(walkIn.getTicket().getParkingSpot().getId()).isEqualTo(1);
+        // Starting soon: only a spot free right now will do
+        Reservation reservation = reserve("HOLDER", now + 10 * MINUTE, now + 2 * HOUR);
+        assertThat(reservation.getParkingSpot().getId()).isEqualTo(2);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(3);
+
+        assertThat(parkingService.enter(ParkingType.CAR, "OTHER").getTicket().getParkingSpot().getId()).isEqualTo(3);
+        assertThat(parkingService.enter(ParkingType.CAR, "FULL").getStatus()).isEqualTo(EntryResult.Status.PARKING_FULL);
+
+        EntryResult holder = parkingService.enter(ParkingType.CAR, "HOLDER");
+        assertThat(holder.getStatus()).isEqualTo(EntryResult.Status.PARKED);
+        assertThat(holder.getTicket().getParkingSpot().getId()).isEqualTo(2);
+        assertThat(reservationDAO.getReservation("HOLDER", 1, new Date())).isNull();
+        assertThat(querySingleValue("select count(*) from reservation")).isEqualTo("1");
+
+        // Used, the reservation no longer holds the spot once the holder leaves
+        parkingService.exit("HOLDER");
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Keeping walk-ins away from held spots when looking up free spots in the database")
+    public void databaseLookupWithReservationTest() throws Exception {
+        long now = System.currentTimeMillis();
+        assertThat(reserve("HOLDER", now + 10 * MINUTE, now + HOUR).getParkingSpot().getId()).isEqualTo(1);
+
+        ParkingSpotDAO databaseOnlyDAO = newDatabaseOnlyParkingSpotDAO();
+        databaseOnlyDAO.setReservationDAO(reservationDAO);
+        assertThat(databaseOnlyDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+        assertThat(databaseOnlyDAO.claimNextAvailableSlot(ParkingType.CAR).getId()).isEqualTo(2);
+
+        // Reservations that cannot be loaded hold every spot
+        databaseOnlyDAO.setReservationDAO(new ReservationDAO(newDatabaseOnlyParkingSpotDAO()));
+        assertThat(databaseOnlyDAO.getNextAvailableSlot(ParkingType.CAR)).isZero();
+        assertThat(databaseOnlyDAO.claimNextAvailableSlot(ParkingType.CAR)).isNull();
+        assertThat(querySingleValue("select count(*) from parking where TYPE = 'CAR' and AVAILABLE = true")).isEqualTo("2");
+    }
+
+    private static ParkingSpotDAO newDatabaseOnlyParkingSpotDAO() {
+        ParkingSpotDAO databaseOnlyDAO = new ParkingSpotDAO() {
+            @Override
+            public List<ParkingSpot> getParkingSpots() throws SQLException {
+                throw new SQLException("Free spot index unavailable");
+            }
+        };
+        databaseOnlyDAO.dataBaseConfig = dataBaseConfig;
+        return databaseOnlyDAO;
+    }
+}
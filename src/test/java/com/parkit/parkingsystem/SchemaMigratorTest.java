@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SchemaMigratorTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("schemaMigratorTest");
+
+    private SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        executeSql("drop all objects");
+        schemaMigrator = new SchemaMigrator(dataBaseConfig);
+    }
+
+    private void executeSql(String sql) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private String querySingleValue(String sql) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Creating the schema and seed spots of an empty database")
+    public void migrateEmptyDataBaseTest() throws Exception {
+        int applied = schemaMigrator.migrate();
+
+        assertThat(applied).isEqualTo(7);
+        assertThat(querySingleValue("select max(VERSION) from schema_version")).isEqualTo("7");
+        assertThat(querySingleValue("select count(*) from parking")).isEqualTo("5");
+    }
+
+    @Test
+    @DisplayName("Applying nothing when the schema is up to date")
+    public void migrateTwiceTest() throws Exception {
+        schemaMigrator.migrate();
+
+        assertThat(schemaMigrator.migrate()).isZero();
+    }
+
+    @Test
+    @DisplayName("Baselining a database created from Data.sql and only applying the newer migrations")
+    public void migrateExistingDataBaseTest() throws Exception {
+        executeSql("create table parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL, TYPE varchar(10) NOT NULL)");
+        executeSql("create table ticket(ID int PRIMARY KEY AUTO_INCREMENT, PARKING_NUMBER int NOT NULL, VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE double, IN_TIME DATETIME NOT NULL, OUT_TIME DATETIME)");
+        executeSql("insert into parking values(1,true,'CAR')");
+
+        int applied = schemaMigrator.migrate();
+
+        assertThat(applied).isEqualTo(6);
+        assertThat(querySingleValue("select count(*) from parking")).isEqualTo("1");
+        assertThat(querySingleValue("select count(*) from schema_version")).isEqualTo("7");
+        assertThat(querySingleValue("select LOT_NUMBER || '/' || LEVEL_NUMBER from parking")).isEqualTo("1/0");
+    }
+
+    @Test
+    @DisplayName("Looking tickets up by plate through the index instead of a table scan")
+    public void ticketLookupUsesIndexTest() throws Exception {
+        schemaMigrator.migrate();
+
+        String getTicketPlan = querySingleValue("explain select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER='ABCDEF' order by t.IN_TIME DESC limit 1");
+        String getNbTicketPlan = querySingleValue("explain select count(ID) as NB_TICKET from ticket where VEHICLE_REG_NUMBER = 'ABCDEF'");
+
+        assertThat(getTicketPlan).contains("TICKET_VEHICLE_IN_TIME_IDX");
+        assertThat(getNbTicketPlan).contains("TICKET_VEHICLE_IN_TIME_IDX");
+    }
+}
@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.TariffConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.TariffTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TariffTableTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    // Midnight UTC
+    private static final long MIDNIGHT = 1700006400000L;
+
+    private static TariffTable compile(String... lines) {
+        Properties properties = new Properties();
+        for (String line : lines) {
+            String[] keyValue = line.split("=", 2);
+            properties.setProperty(keyValue[0], keyValue[1]);
+        }
+        return TariffTable.compile(properties, UTC);
+    }
+
+    @Test
+    @DisplayName("Pricing with the default tariff like the historical fares")
+    public void defaultTableTest() {
+        TariffTable tariff = TariffTable.defaultTable();
+
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT, MIDNIGHT + 29 * MINUTE, false)).isZero();
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT, MIDNIGHT + HOUR, false)).isEqualTo(150);
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT, MIDNIGHT + HOUR, true)).isEqualTo(142);
+        assertThat(tariff.priceInCents(ParkingType.BIKE, MIDNIGHT, MIDNIGHT + 45 * MINUTE, false)).isEqualTo(75);
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT, MIDNIGHT + 24 * HOUR, false)).isEqualTo(3600);
+    }
+
+    @Test
+    @DisplayName("Pricing a stay across time-of-day bands, including one wrapping around midnight")
+    public void bandsTest() {
+        TariffTable tariff = compile("free.minutes=30", "CAR.rate.per.hour=2.00", "BIKE.rate.per.hour=1",
+                "CAR.bands=22:00-06:00=0.50");
+
+        // 21:00 to 23:00, one hour at 2.00 and one at 0.50
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT - 3 * HOUR, MIDNIGHT - HOUR, false)).isEqualTo(250);
+        // 05:30 to 06:30
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT + 5 * HOUR + 30 * MINUTE, MIDNIGHT + 6 * HOUR + 30 * MINUTE, false)).isEqualTo(125);
+        // A whole day is 16 hours at 2.00 and 8 at 0.50
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT + 13 * HOUR, MIDNIGHT + 37 * HOUR, false)).isEqualTo(3600);
+        assertThat(tariff.getRatePerHourInCents(ParkingType.CAR, 23 * 60)).isEqualTo(50);
+        assertThat(tariff.getRatePerHourInCents(ParkingType.BIKE, 23 * 60)).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Capping the price of each 24 hours parked")
+    public void dailyCapTest() {
+        TariffTable tariff = compile("CAR.rate.per.hour=1.50", "BIKE.rate.per.hour=1", "CAR.daily.cap=20");
+
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT, MIDNIGHT + 10 * HOUR, false)).isEqualTo(1500);
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT, MIDNIGHT + 20 * HOUR, false)).isEqualTo(2000);
+        assertThat(tariff.priceInCents(ParkingType.CAR, MIDNIGHT, MIDNIGHT + 50 * HOUR, false)).isEqualTo(2000 + 2000 + 300);
+        assertThat(tariff.priceInCents(ParkingType.BIKE, MIDNIGHT, MIDNIGHT + 50 * HOUR, false)).isEqualTo(5000);
+    }
+
+    @Test
+    @DisplayName("Rejecting a tariff without a rate for every parking type")
+    public void missingRateTest() {
+        assertThrows(IllegalArgumentException.class, () -> compile("CAR.rate.per.hour=1.50"));
+    }
+
+    @Test
+    @DisplayName("Reloading a tariff file when it changes and keeping the last good tariff")
+    public void reloadIfModifiedTest() throws Exception {
+        Path file = Files.createTempFile("tariff", ".properties");
+        try {
+            Files.write(file, Arrays.asList("CAR.rate.per.hour=1.50", "BIKE.rate.per.hour=1"), StandardCharsets.UTF_8);
+            TariffConfig tariffConfig = new TariffConfig(file);
+            TariffTable loaded = tariffConfig.getTariffTable();
+
+            assertThat(tariffConfig.reloadIfModified()).isFalse();
+
+            Files.write(file, Arrays.asList("CAR.rate.per.hour=3", "BIKE.rate.per.hour=1"), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+            assertThat(tariffConfig.reloadIfModified()).isTrue();
+            assertThat(tariffConfig.getTariffTable()).isNotSameAs(loaded);
+            assertThat(tariffConfig.getTariffTable().getRatePerHourInCents(ParkingType.CAR, 0)).isEqualTo(300);
+
+            Files.write(file, Arrays.asList("CAR.rate.per.hour=oops"), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+            assertThat(tariffConfig.reloadIfModified()).isFalse();
+            assertThat(tariffConfig.getTariffTable().getRatePerHourInCents(ParkingType.CAR, 0)).isEqualTo(300);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
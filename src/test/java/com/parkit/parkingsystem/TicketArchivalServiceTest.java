@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.ReportingService;
+import com.parkit.parkingsystem.service.TicketArchivalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TicketArchivalServiceTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("ticketArchivalServiceTest");
+
+    private static final long HOUR = 60 * 60 * 1000;
+    // 2024-01-01T00:00:00Z
+    private static final long BASE_TIME = 1704067200000L;
+
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+
+        insertTicket(1, "ABC", 1.5, BASE_TIME, BASE_TIME + HOUR);
+        insertTicket(4, "XYZ", 1, BASE_TIME + HOUR, BASE_TIME + 2 * HOUR);
+        insertTicket(1, "ABC", 3, BASE_TIME + 3 * HOUR, BASE_TIME + 5 * HOUR);
+        // Closed after the horizon
+        insertTicket(1, "ABC", 1.5, BASE_TIME + 48 * HOUR, BASE_TIME + 49 * HOUR);
+        // Still parked
+        insertTicket(2, "DEF", 0, BASE_TIME + 4 * HOUR, -1);
+    }
+
+    private void insertTicket(int parkingNumber, String vehicleRegNumber, double price, long inTime, long outTime) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicleRegNumber);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, outTime < 0 ? null : new Timestamp(outTime));
+            ps.executeUpdate();
+        }
+    }
+
+    private String querySingleValue(String sql) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private TicketDAO newTicketDAO() {
+        // Nothing cached
+        TicketDAO newTicketDAO = new TicketDAO();
+        newTicketDAO.dataBaseConfig = dataBaseConfig;
+        return newTicketDAO;
+    }
+
+    @Test
+    @DisplayName("Moving closed tickets to the archive in batches and keeping the visit counts")
+    public void archiveTest() throws Exception {
+        TicketArchivalService service = new TicketArchivalService(ticketDAO, 2);
+
+        TicketArchivalService.Report report = service.archive(new Date(BASE_TIME + 24 * HOUR));
+
+        assertThat(report.getTickets()).isEqualTo(3);
+        assertThat(report.getBatches()).isEqualTo(2);
+        assertThat(querySingleValue("select count(*) from ticket")).isEqualTo("2");
+        assertThat(querySingleValue("select count(*) from ticket_archive where ARCHIVE_MONTH = 202401")).isEqualTo("3");
+        assertThat(querySingleValue("select NB_TICKET from visit_count_archive where VEHICLE_REG_NUMBER = 'ABC'")).isEqualTo("2");
+        assertThat(newTicketDAO().getNbTicket("ABC")).isEqualTo(3);
+        assertThat(newTicketDAO().getNbTicket("XYZ")).isEqualTo(1);
+        assertThat(newTicketDAO().getNbTicket("DEF")).isEqualTo(1);
+
+        assertThat(service.archive(new Date(BASE_TIME + 24 * HOUR)).getTickets()).isZero();
+        assertThat(service.archive(new Date(BASE_TIME + 72 * HOUR)).getTickets()).isEqualTo(1);
+        assertThat(querySingleValue("select NB_TICKET from visit_count_archive where VEHICLE_REG_NUMBER = 'ABC'")).isEqualTo("3");
+        assertThat(newTicketDAO().getNbTicket("ABC")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Reporting on archived tickets as on the others")
+    public void reportOverArchiveTest() throws Exception {
+        ReportingService reportingService = new ReportingService(ticketDAO, ZoneOffset.UTC, 2);
+        Date from = new Date(BASE_TIME + 2 * HOUR);
+        Date to = new Date(BASE_TIME + 72 * HOUR);
+        ReportingService.Report before = reportingService.report(from, to);
+
+        new TicketArchivalService(ticketDAO).archive(new Date(BASE_TIME + 24 * HOUR));
+        ReportingService.Report after = reportingService.report(from, to);
+
+        assertThat(after.getTickets()).isEqualTo(before.getTickets()).isEqualTo(4);
+        assertThat(after.getRevenueInCents()).isEqualTo(before.getRevenueInCents()).isEqualTo(550);
+        assertThat(after.getPeakOccupancy()).isEqualTo(before.getPeakOccupancy()).isEqualTo(2);
+        assertThat(after.getRecurringShare()).isEqualTo(before.getRecurringShare()).isEqualTo(2.0 / 3);
+    }
+}
@@ -0,0 +1,169 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.export.TicketColumnReader;
+import com.parkit.parkingsystem.export.TicketColumnWriter;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.TicketArchivalService;
+import com.parkit.parkingsystem.service.TicketExportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TicketExportTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("ticketExportTest");
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    // 2024-01-01T00:00:00Z
+    private static final long BASE_TIME = 1704067200000L;
+
+    private Path file;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        file = Files.createTempFile("tickets", ".pktx");
+    }
+
+    @AfterEach
+    public void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    private void writeTickets(int count, int blockSize) throws IOException {
+        try (TicketColumnWriter writer = new TicketColumnWriter(file, blockSize)) {
+            for (int i = 0; i < count; i++) {
+                long inTime = BASE_TIME + i * 7 * MINUTE;
+                writer.write(i % 50 + 1, "AB-" + (i % 300) + "-CD", i % 4 == 0 ? ParkingType.BIKE : ParkingType.CAR,
+                        inTime, inTime + (i % 180) * MINUTE, i % 1000);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Reading back every ticket written, across blocks, from a compact file")
+    public void writeAndReadTest() throws Exception {
+        writeTickets(10000, 4096);
+
+        long tickets = 0;
+        try (TicketColumnReader reader = new TicketColumnReader(file)) {
+            TicketColumnReader.Batch batch = new TicketColumnReader.Batch();
+            while (reader.next(batch)) {
+                for (int j = 0; j < batch.size(); j++) {
+                    long i = tickets++;
+                    long inTime = BASE_TIME + i * 7 * MINUTE;
+                    assertThat(batch.getParkingNumber(j)).isEqualTo(i % 50 + 1);
+                    assertThat(reader.getPlate(batch.getPlateId(j))).isEqualTo("AB-" + (i % 300) + "-CD");
+                    assertThat(batch.getParkingType(j)).isEqualTo(i % 4 == 0 ? ParkingType.BIKE : ParkingType.CAR);
+                    assertThat(batch.getInTime(j)).isEqualTo(inTime);
+                    assertThat(batch.getOutTime(j)).isEqualTo(inTime + (i % 180) * MINUTE);
+                    assertThat(batch.getPriceInCents(j)).isEqualTo(i % 1000);
+                }
+            }
+            assertThat(reader.next(batch)).isFalse();
+            assertThat(reader.getPlateCount()).isEqualTo(300);
+        }
+        assertThat(tickets).isEqualTo(10000);
+        // Against 6 columns of 4 to 8 bytes for a row-oriented dump
+        assertThat(Files.size(file)).isLessThan(10000 * 11);
+    }
+
+    @Test
+    @DisplayName("Keeping the milliseconds of times not on a second")
+    public void millisecondTimesTest() throws Exception {
+        try (TicketColumnWriter writer = new TicketColumnWriter(file)) {
+            writer.write(1, "ABC", ParkingType.CAR, BASE_TIME + 1, BASE_TIME + HOUR + 999, -50);
+        }
+
+        try (TicketColumnReader reader = new TicketColumnReader(file)) {
+            TicketColumnReader.Batch batch = new TicketColumnReader.Batch();
+            assertThat(reader.next(batch)).isTrue();
+            assertThat(batch.getInTime(0)).isEqualTo(BASE_TIME + 1);
+            assertThat(batch.getOutTime(0)).isEqualTo(BASE_TIME + HOUR + 999);
+            assertThat(batch.getPriceInCents(0)).isEqualTo(-50);
+        }
+    }
+
+    @Test
+    @DisplayName("Rejecting a damaged or truncated file")
+    public void corruptFileTest() throws Exception {
+        writeTickets(1000, 512);
+        byte[] bytes = Files.readAllBytes(file);
+
+        byte[] damaged = bytes.clone();
+        damaged[100] ^= 1;
+        Files.write(file, damaged);
+        try (TicketColumnReader reader = new TicketColumnReader(file)) {
+            assertThrows(IOException.class, () -> reader.next(new TicketColumnReader.Batch()));
+        }
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        try (TicketColumnReader reader = new TicketColumnReader(file)) {
+            TicketColumnReader.Batch batch = new TicketColumnReader.Batch();
+            assertThat(reader.next(batch)).isTrue();
+            assertThat(reader.next(batch)).isTrue();
+            assertThrows(IOException.class, () -> reader.next(batch));
+        }
+    }
+
+    @Test
+    @DisplayName("Exporting the closed tickets of the database and of the archive in entry order")
+    public void exportTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        insertTicket(1, "ABC", 1.5, BASE_TIME, BASE_TIME + HOUR);
+        insertTicket(4, "XYZ", 1, BASE_TIME + 2 * HOUR, BASE_TIME + 3 * HOUR);
+        insertTicket(2, "ABC", 3, BASE_TIME + 48 * HOUR, BASE_TIME + 50 * HOUR);
+        // Still parked
+        insertTicket(3, "DEF", 0, BASE_TIME + 49 * HOUR, -1);
+        new TicketArchivalService(ticketDAO).archive(new Date(BASE_TIME + 24 * HOUR));
+
+        long exported = new TicketExportService(ticketDAO, 2).export(new Date(0), new Date(BASE_TIME + 72 * HOUR), file);
+
+        assertThat(exported).isEqualTo(3);
+        try (TicketColumnReader reader = new TicketColumnReader(file)) {
+            TicketColumnReader.Batch batch = new TicketColumnReader.Batch();
+            assertThat(reader.next(batch)).isTrue();
+            assertThat(batch.size()).isEqualTo(2);
+            assertThat(reader.getPlate(batch.getPlateId(0))).isEqualTo("ABC");
+            assertThat(batch.getInTime(0)).isEqualTo(BASE_TIME);
+            assertThat(batch.getPriceInCents(0)).isEqualTo(150);
+            assertThat(batch.getParkingType(1)).isEqualTo(ParkingType.BIKE);
+            assertThat(batch.getOutTime(1)).isEqualTo(BASE_TIME + 3 * HOUR);
+            assertThat(reader.next(batch)).isTrue();
+            assertThat(batch.size()).isEqualTo(1);
+            assertThat(batch.getPlateId(0)).isZero();
+            assertThat(batch.getParkingNumber(0)).isEqualTo(2);
+            assertThat(batch.getPriceInCents(0)).isEqualTo(300);
+            assertThat(reader.next(batch)).isFalse();
+        }
+    }
+
+    private void insertTicket(int parkingNumber, String vehicleRegNumber, double price, long inTime, long outTime) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicleRegNumber);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, outTime < 0 ? null : new Timestamp(outTime));
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TicketJournalTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("ticketJournalTest");
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private Path journalFile;
+    private TicketJournal ticketJournal;
+    private TicketDAO ticketDAO;
+    private ParkingService parkingService;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        journalFile = Files.createTempFile("tickets", ".journal");
+        ticketJournal = open();
+    }
+
+    @AfterEach
+    public void tearDownPerTest() throws Exception {
+        ticketJournal.close();
+        Files.delete(journalFile);
+    }
+
+    private TicketJournal open() throws Exception {
+        TicketJournal journal = new TicketJournal(journalFile, dataBaseConfig);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpotIndex();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.setTicketJournal(journal);
+        parkingService = new ParkingService(parkingSpotDAO, ticketDAO, new FareCalculatorService());
+        return journal;
+    }
+
+    private static int countRows(String sql) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Writing tickets behind the gate and flushing them to the database")
+    public void writeBehindTest() throws Exception {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        EntryResult entry = parkingService.enter(ParkingType.CAR, "ABCDEF", inTime);
+        assertThat(entry.isParked()).isTrue();
+        assertThat(countRows("select count(*) from ticket")).isZero();
+        assertThat(ticketDAO.getTicket("ABCDEF").getParkingSpot().getId()).isEqualTo(1);
+        assertThat(ticketDAO.getNbTicket("ABCDEF")).isEqualTo(1);
+
+        ExitResult exit = parkingService.exit("ABCDEF", new Date(inTime.getTime() + 2 * HOUR));
+        assertThat(exit.isSuccess()).isTrue();
+        // The ticket saved and closed, each followed by the commit of its unit of work
+        assertThat(ticketJournal.getPendingRecords()).isEqualTo(4);
+
+        assertThat(ticketJournal.flush()).isTrue();
+        assertThat(ticketJournal.getPendingRecords()).isZero();
+        assertThat(Files.size(journalFile)).isZero();
+        assertThat(countRows("select count(*) from ticket where OUT_TIME is not null and PRICE = 3.0")).isEqualTo(1);
+        assertThat(countRows("select LAST_SEQUENCE from journal_checkpoint")).isEqualTo(4);
+        assertThat(ticketDAO.getTicket("ABCDEF").getId()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Replaying the journal after a crash without losing or duplicating tickets")
+    public void crashRecoveryTest() throws Exception {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        parkingService.enter(ParkingType.CAR, "FLUSHED", inTime);
+        ticketJournal.flush();
+        parkingService.enter(ParkingType.CAR, "CLOSED", inTime);
+        parkingService.exit("CLOSED", new Date(inTime.getTime() + HOUR));
+        parkingService.enter(ParkingType.BIKE, "OPEN", inTime);
+        // Flushed, but the crash hits before the journal is truncated
+        byte[] beforeFlush = Files.readAllBytes(journalFile);
+        parkingService.enter(ParkingType.BIKE, "LAST", inTime);
+        ticketJournal.flush();
+        Files.write(journalFile, beforeFlush);
+        // Crash with a torn record at the end of the journal
+        Files.write(journalFile, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        TicketJournal recovered = new TicketJournal(journalFile, dataBaseConfig);
+        recovered.close();
+        assertThat(countRows("select count(*) from ticket")).isEqualTo(4);
+        assertThat(Files.size(journalFile)).isZero();
+
+        ticketJournal = open();
+        parkingService.enter(ParkingType.CAR, "AFTER", inTime);
+        parkingService.exit("AFTER", new Date(inTime.getTime() + HOUR));
+        parkingService.enter(ParkingType.CAR, "PARKED", inTime);
+        // Crash before anything is flushed
+        ticketJournal = open();
+        assertThat(countRows("select count(*) from ticket")).isEqualTo(6);
+        assertThat(ticketDAO.getTicket("AFTER").getPrice()).isEqualTo(1.5);
+        assertThat(ticketDAO.getTicket("PARKED").getOutTime()).isNull();
+        assertThat(countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'CLOSED' and OUT_TIME is not null and PRICE = 1.5")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Cancelling journaled tickets when the unit of work rolls back")
+    public void rollbackTest() throws Exception {
+        assertThatThrownBy(() -> UnitOfWork.execute(() -> {
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+            ticket.setVehicleRegNumber("ROLLBACK");
+            ticket.setInTime(new Date());
+            ticketDAO.saveTicket(ticket);
+            assertThat(ticketDAO.getTicket("ROLLBACK")).isNotNull();
+            throw new IllegalStateException("Gate failure");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(ticketDAO.getTicket("ROLLBACK")).isNull();
+
+        // Crash before the rolled back record is dropped from the file
+        TicketJournal recovered = new TicketJournal(journalFile, dataBaseConfig);
+        recovered.close();
+        assertThat(countRows("select count(*) from ticket")).isZero();
+    }
+
+    @Test
+    @DisplayName("Dropping the ticket close of an exit cut short by a crash before its commit")
+    public void crashBeforeCommitTest() throws Exception {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        parkingService.enter(ParkingType.CAR, "CRASH", inTime);
+        int freeSpots = countRows("select count(*) from parking where AVAILABLE = true");
+        byte[][] atCrash = new byte[1][];
+        assertThatThrownBy(() -> UnitOfWork.execute(() -> {
+            Ticket ticket = ticketDAO.getTicket("CRASH");
+            ticket.setOutTime(new Date(inTime.getTime() + HOUR));
+            ticket.setPrice(1.5);
+            assertThat(ticketDAO.updateTicket(ticket)).isEqualTo(1);
+            atCrash[0] = Files.readAllBytes(journalFile);
+            throw new IllegalStateException("Crash");
+        })).isInstanceOf(IllegalStateException.class);
+        Files.write(journalFile, atCrash[0]);
+
+        // The spot was never freed, so the ticket stays open and the vehicle can still leave
+        ticketJournal = open();
+        assertThat(countRows("select count(*) from ticket where OUT_TIME is null")).isEqualTo(1);
+        assertThat(countRows("select count(*) from parking where AVAILABLE = true")).isEqualTo(freeSpots);
+        assertThat(parkingService.exit("CRASH", new Date(inTime.getTime() + HOUR)).isSuccess()).isTrue();
+        assertThat(ticketJournal.flush()).isTrue();
+        assertThat(countRows("select count(*) from parking where AVAILABLE = true")).isEqualTo(freeSpots + 1);
+        assertThat(countRows("select count(*) from ticket where OUT_TIME is not null and PRICE = 1.5")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Replaying the tickets of a unit of work whose database commit a crash cut short")
+    public void crashBetweenCommitsTest() throws Exception {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        parkingService.enter(ParkingType.CAR, "LEAVING", inTime);
+        ticketJournal.flush();
+        byte[][] atCrash = new byte[1][];
+        assertThatThrownBy(() -> UnitOfWork.execute(() -> {
+            parkingService.exit("LEAVING", new Date(inTime.getTime() + HOUR));
+            parkingService.enter(ParkingType.BIKE, "ARRIVING", inTime);
+            // Registered after the journal, so its commit record is already on disk
+            UnitOfWork.beforeCommit(() -> {
+                try {
+                    atCrash[0] = Files.readAllBytes(journalFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                throw new IllegalStateException("Crash");
+            });
+            return null;
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(countRows("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = false")).isEqualTo(1);
+        assertThat(countRows("select count(*) from parking where PARKING_NUMBER = 4 and AVAILABLE = true")).isEqualTo(1);
+
+        // Crash before the abort record: the tickets are replayed and their spots follow them
+        Files.write(journalFile, atCrash[0]);
+        ticketJournal = open();
+        assertThat(countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'LEAVING' and OUT_TIME is not null and PRICE = 1.5")).isEqualTo(1);
+        assertThat(countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'ARRIVING' and OUT_TIME is null")).isEqualTo(1);
+        assertThat(countRows("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = true")).isEqualTo(1);
+        assertThat(countRows("select count(*) from parking where PARKING_NUMBER = 4 and AVAILABLE = false")).isEqualTo(1);
+
+        // Rolled back without a crash, the abort record keeps the ticket from being replayed
+        assertThatThrownBy(() -> UnitOfWork.execute(() -> {
+            parkingService.enter(ParkingType.CAR, "ABORTED", inTime);
+            UnitOfWork.beforeCommit(() -> {
+                throw new IllegalStateException("Database failure");
+            });
+            return null;
+        })).isInstanceOf(IllegalStateException.class);
+        ticketJournal = open();
+        assertThat(countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'ABORTED'")).isZero();
+        assertThat(countRows("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = true")).isEqualTo(1);
+    }
+}
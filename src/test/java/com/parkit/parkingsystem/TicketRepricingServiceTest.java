@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.TicketRepricingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TicketRepricingServiceTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("ticketRepricingServiceTest");
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long BASE_TIME = 1700000000000L;
+
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+
+        // First visit of ABC, one hour on a car spot, stored without a price
+        insertTicket(1, "ABC", 0, BASE_TIME, BASE_TIME + HOUR);
+        // Second visit of ABC, two hours, recurring
+        insertTicket(1, "ABC", 0, BASE_TIME + 3 * HOUR, BASE_TIME + 5 * HOUR);
+        // Twenty minutes on a bike spot, already free
+        insertTicket(4, "XYZ", 0, BASE_TIME, BASE_TIME + HOUR / 3);
+        // Still parked
+        insertTicket(2, "DEF", 0, BASE_TIME, -1);
+    }
+
+    private void insertTicket(int parkingNumber, String vehicleRegNumber, double price, long inTime, long outTime) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicleRegNumber);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, outTime < 0 ? null : new Timestamp(outTime));
+            ps.executeUpdate();
+        }
+    }
+
+    private double sumOfPrices() throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery("select sum(PRICE) from ticket")) {
+            rs.next();
+            return rs.getDouble(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Repricing closed tickets in chunks and writing the changed prices")
+    public void repriceWritesChangedPricesTest() throws Exception {
+        TicketRepricingService service = new TicketRepricingService(ticketDAO, new FareCalculatorService(), 2);
+
+        TicketRepricingService.Report report = service.reprice(new Date(0), new Date(BASE_TIME + 24 * HOUR), false);
+
+        assertThat(report.getTickets()).isEqualTo(3);
+        assertThat(report.getChunks()).isEqualTo(2);
+        assertThat(report.getChangedTickets()).isEqualTo(2);
+        assertThat(report.getOldRevenueInCents()).isEqualTo(0);
+        // 150 for the first visit, 300 minus 5% for the second
+        assertThat(report.getNewRevenueInCents()).isEqualTo(150 + 285);
+        assertThat(sumOfPrices()).isEqualTo(4.35);
+
+        assertThat(service.reprice(new Date(0), new Date(BASE_TIME + 24 * HOUR), false).getChangedTickets()).isZero();
+    }
+
+    @Test
+    @DisplayName("Simulating a repricing without writing anything")
+    public void repriceDryRunTest() throws Exception {
+        TicketRepricingService service = new TicketRepricingService(ticketDAO, new FareCalculatorService());
+
+        TicketRepricingService.Report report = service.reprice(new Date(0), new Date(BASE_TIME + 2 * HOUR), true);
+
+        assertThat(report.getTickets()).isEqualTo(2);
+        assertThat(report.getNewRevenueInCents()).isEqualTo(150);
+        assertThat(sumOfPrices()).isZero();
+    }
+}
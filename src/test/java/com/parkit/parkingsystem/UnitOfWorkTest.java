@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UnitOfWorkTest {
+
+    private static final EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("unitOfWorkTest");
+
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig.resetSchema();
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.reconcileFreeSpotIndex();
+    }
+
+    private boolean isAvailable(int parkingNumber) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery("select AVAILABLE from parking where PARKING_NUMBER = " + parkingNumber)) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Running every DAO call of a unit of work on the same connection")
+    public void executeSharesOneConnectionTest() throws Exception {
+        long borrowsBefore = dataBaseConfig.getConnectionPool().getBorrowCount();
+
+        UnitOfWork.execute(() -> {
+            parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+            parkingSpotDAO.updateParking(new ParkingSpot(4, ParkingType.BIKE, false));
+            return null;
+        });
+
+        assertThat(dataBaseConfig.getConnectionPool().getBorrowCount() - borrowsBefore).isEqualTo(1);
+        assertThat(isAvailable(1)).isFalse();
+        assertThat(isAvailable(4)).isFalse();
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Rolling back the database and the free spot index when the work fails")
+    public void executeRollsBackOnErrorTest() throws Exception {
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.execute(() -> {
+            parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+            parkingSpotDAO.updateParking(new ParkingSpot(4, ParkingType.BIKE, false));
+            throw new IllegalStateException("Gate failure");
+        }));
+
+        assertThat(isAvailable(1)).isTrue();
+        assertThat(isAvailable(4)).isTrue();
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(4);
+        assertThat(dataBaseConfig.getConnectionPool().getActiveCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Rolling back the work when an action run before the commit fails")
+    public void beforeCommitFailureRollsBackTest() throws Exception {
+        boolean[] rolledBack = new boolean[1];
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.execute(() -> {
+            parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+            UnitOfWork.afterRollback(() -> rolledBack[0] = true);
+            UnitOfWork.beforeCommit(() -> {
+                throw new IllegalStateException("Journal failure");
+            });
+            return null;
+        }));
+
+        assertThat(rolledBack[0]).isTrue();
+        assertThat(isAvailable(1)).isTrue();
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+    }
+}
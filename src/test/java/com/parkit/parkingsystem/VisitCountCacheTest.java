@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.VisitCountCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VisitCountCacheTest {
+
+    @Test
+    @DisplayName("Counting hits and misses of the visit count lookups")
+    public void getCountsHitsAndMissesTest() {
+        VisitCountCache visitCountCache = new VisitCountCache(10, 0);
+
+        assertThat(visitCountCache.get("ABCDEF")).isNull();
+        visitCountCache.put("ABCDEF", 2);
+        assertThat(visitCountCache.get("ABCDEF")).isEqualTo(2);
+
+        assertThat(visitCountCache.getHitCount()).isEqualTo(1);
+        assertThat(visitCountCache.getMissCount()).isEqualTo(1);
+        assertThat(visitCountCache.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("Incrementing only the plates already in the cache")
+    public void incrementTest() {
+        VisitCountCache visitCountCache = new VisitCountCache(10, 0);
+        visitCountCache.put("ABCDEF", 1);
+
+        visitCountCache.increment("ABCDEF");
+        visitCountCache.increment("GHIJKL");
+
+        assertThat(visitCountCache.get("ABCDEF")).isEqualTo(2);
+        assertThat(visitCountCache.get("GHIJKL")).isNull();
+    }
+
+    @Test
+    @DisplayName("Never lowering a cached count with an older count read from the database")
+    public void loadTest() {
+        VisitCountCache visitCountCache = new VisitCountCache(10, 0);
+        visitCountCache.load("ABCDEF", 1);
+        // A visit counted after another gate read the count
+        visitCountCache.increment("ABCDEF");
+
+        visitCountCache.load("ABCDEF", 1);
+        assertThat(visitCountCache.get("ABCDEF")).isEqualTo(2);
+        visitCountCache.load("ABCDEF", 3);
+        assertThat(visitCountCache.get("ABCDEF")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Evicting the least recently used plate when the cache is full")
+    public void evictLeastRecentlyUsedTest() {
+        VisitCountCache visitCountCache = new VisitCountCache(2, 0);
+        visitCountCache.put("AAAAAA", 1);
+        visitCountCache.put("BBBBBB", 1);
+        visitCountCache.get("AAAAAA");
+
+        visitCountCache.put("CCCCCC", 1);
+
+        assertThat(visitCountCache.size()).isEqualTo(2);
+        assertThat(visitCountCache.get("BBBBBB")).isNull();
+        assertThat(visitCountCache.get("AAAAAA")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Reloading a plate once its time to live has elapsed")
+    public void expireAfterTimeToLiveTest() throws Exception {
+        VisitCountCache visitCountCache = new VisitCountCache(10, 10);
+        visitCountCache.put("ABCDEF", 3);
+
+        Thread.sleep(30);
+
+        assertThat(visitCountCache.get("ABCDEF")).isNull();
+        assertThat(visitCountCache.size()).isZero();
+    }
+}
@@ -45,6 +45,8 @@ public class ParkingDataBaseIT {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         dataBasePrepareService.clearDataBaseEntries();
+        parkingSpotDAO.reconcileFreeSpotIndex();
+        ticketDAO.getVisitCountCache().clear();
     }
 
     @AfterAll
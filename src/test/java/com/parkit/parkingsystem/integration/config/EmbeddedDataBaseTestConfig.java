@@ -0,0 +1,26 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseSettings;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+public class EmbeddedDataBaseTestConfig extends DataBaseConfig {
+
+    public EmbeddedDataBaseTestConfig(String databaseName) {
+        super(DataBaseSettings.embedded(databaseName));
+    }
+
+    /**
+     * Drops everything and rebuilds the schema and seed data from the migration scripts.
+     */
+    public void resetSchema() throws Exception {
+        try (Connection con = getConnection();
+             Statement statement = con.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        new SchemaMigrator(this).migrate();
+    }
+}
@@ -16,12 +16,18 @@ public class DataBasePrepareService {
     public void clearDataBaseEntries(){
         try (Connection connection = dataBaseTestConfig.getConnection();
             PreparedStatement updateParkingPreparedStatement = connection.prepareStatement("update parking set available = true");
-            PreparedStatement truncateTicketPreparedStatement = connection.prepareStatement("truncate table ticket")) {
+            PreparedStatement truncateTicketPreparedStatement = connection.prepareStatement("truncate table ticket");
+            PreparedStatement truncateTicketArchivePreparedStatement = connection.prepareStatement("truncate table ticket_archive");
+            PreparedStatement truncateVisitCountArchivePreparedStatement = connection.prepareStatement("truncate table visit_count_archive");
+            PreparedStatement truncateReservationPreparedStatement = connection.prepareStatement("truncate table reservation")) {
             //set parking entries to available
             updateParkingPreparedStatement.execute();
 
             //clear ticket entries;
             truncateTicketPreparedStatement.execute();
+            truncateTicketArchivePreparedStatement.execute();
+            truncateVisitCountArchivePreparedStatement.execute();
+            truncateReservationPreparedStatement.execute();
 
         }catch(SQLException e){
             e.printStackTrace();